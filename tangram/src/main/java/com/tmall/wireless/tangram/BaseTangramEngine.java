@@ -30,15 +30,15 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.View;
-import android.widget.ImageView;
 
-import com.alibaba.android.vlayout.LayoutViewFactory;
 import com.alibaba.android.vlayout.Range;
 import com.alibaba.android.vlayout.VirtualLayoutManager;
 import com.alibaba.android.vlayout.VirtualLayoutManager.LayoutParams;
 import com.alibaba.android.vlayout.extend.InnerRecycledViewPool;
 import com.alibaba.android.vlayout.extend.PerformanceMonitor;
+import com.tmall.wireless.tangram.core.adapter.AdaptiveRecycledViewPool;
 import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.core.adapter.SharedViewPool;
 import com.tmall.wireless.tangram.core.service.ServiceManager;
 import com.tmall.wireless.tangram.dataparser.DataParser;
 import com.tmall.wireless.tangram.dataparser.IAdapterBuilder;
@@ -59,14 +59,14 @@ import com.tmall.wireless.tangram.support.ExposureSupport;
 import com.tmall.wireless.tangram.support.InternalErrorSupport;
 import com.tmall.wireless.tangram.support.SimpleClickSupport;
 import com.tmall.wireless.tangram.support.TimerSupport;
-import com.tmall.wireless.tangram.util.ImageUtils;
 import com.tmall.wireless.tangram.util.Preconditions;
 import com.tmall.wireless.tangram.util.Predicate;
 import com.tmall.wireless.vaf.framework.VafContext;
 import com.tmall.wireless.vaf.framework.ViewManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -107,6 +107,24 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
 
     private boolean isSupportRx;
 
+    private boolean mEnableStableIds;
+
+    private int mCardChunkSize = 0;
+
+    private int mViewPoolBudget = 0;
+
+    private SharedViewPool.Lease mViewPoolLease;
+
+    private final LayoutViewPool mLayoutViewPool = new LayoutViewPool();
+
+    private final View.OnLayoutChangeListener mAvailableWidthListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop,
+            int oldRight, int oldBottom) {
+            updateAvailableWidth(v);
+        }
+    };
+
     public BaseTangramEngine(@NonNull final Context context,
         @NonNull final DataParser<O, T, C, L> dataParser,
         @NonNull final IAdapterBuilder<C, L> adapterBuilder) {
@@ -115,13 +133,8 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
         this.mContext = context;
         this.mLayoutManager = new VirtualLayoutManager(mContext);
 
-        this.mLayoutManager.setLayoutViewFactory(new LayoutViewFactory() {
-            @Override
-            public View generateLayoutView(@NonNull Context context) {
-                ImageView imageView = ImageUtils.createImageInstance(context);
-                return imageView != null ? imageView : new View(context);
-            }
-        });
+        this.mLayoutManager.setLayoutViewFactory(mLayoutViewPool);
+        register(LayoutViewPool.class, mLayoutViewPool);
 
         this.mDataParser = Preconditions.checkNotNull(dataParser, "dataParser in constructor should not be null");
         this.mAdapterBuilder = Preconditions.checkNotNull(adapterBuilder, "adapterBuilder in constructor should not be null");
@@ -143,7 +156,7 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
     /**
      * @return Adatepr binded to recyclerView.
      */
-    public GroupBasicAdapter<C, ?> getGroupBasicAdapter() {
+    public GroupBasicAdapter<C, L> getGroupBasicAdapter() {
         return mGroupBasicAdapter;
     }
 
@@ -165,6 +178,70 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
         mPerformanceMonitor = performanceMonitor;
     }
 
+    /**
+     * Enable stable ids of adapter, so that views of cells with the same card id, cell id and type are reused without
+     * rebinding across {@link #setData}. Must be called before {@link #bindView(RecyclerView)}.
+     * @param enable true to enable stable ids
+     */
+    public void setEnableStableIds(boolean enable) {
+        mEnableStableIds = enable;
+        if (mGroupBasicAdapter != null && !mGroupBasicAdapter.hasObservers()) {
+            mGroupBasicAdapter.setHasStableIds(enable);
+        }
+    }
+
+    /**
+     * Lay out huge cards by chunks of layoutHelpers, they are still one card for cells, loading and exposure.
+     * Takes effect when data is set next time.
+     * @param chunkSize max count of cells in a chunk, 0 to disable
+     * @see GroupBasicAdapter#setChunkSize(int)
+     */
+    public void setCardChunkSize(int chunkSize) {
+        mCardChunkSize = chunkSize;
+        if (mGroupBasicAdapter != null) {
+            mGroupBasicAdapter.setChunkSize(chunkSize);
+        }
+    }
+
+    /**
+     * Use {@link AdaptiveRecycledViewPool} for the recyclerView, which resizes max recycled views of each type by
+     * usage. Should be called before {@link #bindView(RecyclerView)}.
+     * @param budget max count of recycled views of all types, 0 to use fixed max of each type
+     */
+    public void setViewPoolBudget(int budget) {
+        mViewPoolBudget = Math.max(budget, 0);
+    }
+
+    /**
+     * @return statistics of view types if {@link AdaptiveRecycledViewPool} is used, or empty list
+     */
+    @NonNull
+    public List<AdaptiveRecycledViewPool.Stats> getViewPoolStats() {
+        if (mContentView != null && mContentView.getRecycledViewPool() instanceof AdaptiveRecycledViewPool) {
+            return ((AdaptiveRecycledViewPool) mContentView.getRecycledViewPool()).getStats();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Reuse height measured in last layout for cells whose content and width do not change.
+     * @param enable true to enable
+     * @see MVHelper#setSizeCacheEnabled(boolean)
+     */
+    public void setSizeCacheEnabled(boolean enable) {
+        MVHelper mvHelper = getService(MVHelper.class);
+        if (mvHelper != null) {
+            mvHelper.setSizeCacheEnabled(enable);
+        }
+    }
+
+    private void updateAvailableWidth(View contentView) {
+        MVHelper mvHelper = getService(MVHelper.class);
+        if (mvHelper != null) {
+            mvHelper.setAvailableWidth(contentView.getWidth() - contentView.getPaddingLeft() - contentView.getPaddingRight());
+        }
+    }
+
     /**
      * Bind a recyclerView to Tangram. After calling this, {@link GroupBasicAdapter}, {@link VirtualLayoutManager} are auto binded.
      * @param view A plain recyclerView with no adapter or layoutManager binded.
@@ -175,18 +252,33 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
         if (mContentView != null) {
             mContentView.setAdapter(null);
             mContentView.setLayoutManager(null);
+            mContentView.removeOnLayoutChangeListener(mAvailableWidthListener);
         }
 
         this.mContentView = view;
+        this.mContentView.addOnLayoutChangeListener(mAvailableWidthListener);
+        updateAvailableWidth(mContentView);
         this.mContentView.setLayoutManager(mLayoutManager);
         mLayoutManager.setPerformanceMonitor(mPerformanceMonitor);
         if (mGroupBasicAdapter == null) {
             this.mGroupBasicAdapter = mAdapterBuilder.newAdapter(mContext, mLayoutManager, this);
             mGroupBasicAdapter.setPerformanceMonitor(mPerformanceMonitor);
             mGroupBasicAdapter.setErrorSupport(getService(InternalErrorSupport.class));
+            mGroupBasicAdapter.setChunkSize(mCardChunkSize);
+        }
+        if (!mGroupBasicAdapter.hasObservers()) {
+            mGroupBasicAdapter.setHasStableIds(mEnableStableIds);
         }
 
-        if (mContentView.getRecycledViewPool() != null) {
+        SharedViewPool sharedViewPool = getService(SharedViewPool.class);
+        if (sharedViewPool != null) {
+            if (mViewPoolLease == null) {
+                mViewPoolLease = sharedViewPool.lease(mContext);
+            }
+            mContentView.setRecycledViewPool(mViewPoolLease);
+        } else if (mViewPoolBudget > 0) {
+            mContentView.setRecycledViewPool(new AdaptiveRecycledViewPool(mViewPoolBudget));
+        } else if (mContentView.getRecycledViewPool() != null) {
             mContentView.setRecycledViewPool(new InnerRecycledViewPool(mContentView.getRecycledViewPool()));
         }
 
@@ -206,6 +298,7 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
         if (mContentView != null) {
             this.mContentView.setAdapter(null);
             this.mContentView.setLayoutManager(null);
+            this.mContentView.removeOnLayoutChangeListener(mAvailableWidthListener);
             this.mContentView = null;
         }
     }
@@ -215,9 +308,16 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
      * */
     public int setVirtualViewTemplate(byte[] data) {
         ViewManager viewManager = getService(ViewManager.class);
-        return viewManager.loadBinBufferSync(data);
+        int result = viewManager.loadBinBufferSync(data);
+        if (mGroupBasicAdapter != null) {
+            mGroupBasicAdapter.invalidateItemTypes();
+        }
+        return result;
     }
 
+    /**
+     * Item types cached in cells are invalidated at next {@link #setData} or {@link #refresh()} after template loaded.
+     */
     public void setVirtualViewTemplateAsync(String type, byte[] data) {
         ViewManager viewManager = getService(ViewManager.class);
         viewManager.loadBinBufferAsync(type, data);
@@ -299,6 +399,11 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
             mContentView.setAdapter(null);
             mContentView = null;
         }
+        if (mViewPoolLease != null) {
+            mViewPoolLease.release();
+            mViewPoolLease = null;
+        }
+        mLayoutViewPool.clear();
         TimerSupport timerSupport = getService(TimerSupport.class);
         if (timerSupport != null) {
             timerSupport.clear();
@@ -689,7 +794,7 @@ public class BaseTangramEngine<O, T, C, L> implements ServiceManager {
             return groups;
         }
 
-        List<C> rs = new LinkedList<C>();
+        List<C> rs = new ArrayList<C>();
 
         for (C g : groups) {
             if (predicate.isMatch(g)) {
@@ -0,0 +1,279 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import android.text.TextUtils;
+import android.view.View;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.structure.CellRender;
+import com.tmall.wireless.tangram.util.LogUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Methods annotated by {@link CellRender} of a view class, resolved once and shared by all cells bound to views of
+ * the class. Values of setters are read from cells on each bind, by keys and param types decoded ahead.
+ */
+final class BindingPlan {
+
+    private static final String TAG = "BindingPlan";
+
+    private static final String METHOD_POST_BIND_VIEW = "postBindView";
+
+    private static final String METHOD_POST_UNBIND_VIEW = "postUnBindView";
+
+    private static final String METHOD_CELL_INITED = "cellInited";
+
+    private static final int PARAM_INT = 0;
+
+    private static final int PARAM_STRING = 1;
+
+    private static final int PARAM_BOOLEAN = 2;
+
+    private static final int PARAM_DOUBLE = 3;
+
+    private static final int PARAM_JSON_ARRAY = 4;
+
+    private static final int PARAM_LONG = 5;
+
+    private static final int PARAM_JSON_OBJECT = 6;
+
+    private static final int PARAM_OTHER = 7;
+
+    /*
+     * Double.valueOf is not cached, unlike Integer, Long and Boolean
+     */
+    private static final Double DEFAULT_DOUBLE = 0d;
+
+    @NonNull
+    private final Setter[] mSetters;
+
+    @Nullable
+    private final Method mCellInited;
+
+    @Nullable
+    private final Method mPostBindView;
+
+    @Nullable
+    private final Method mPostUnBindView;
+
+    /*
+     * reused argument array of reflective calls, binding always runs on main thread
+     */
+    private final Object[] mArgs = new Object[1];
+
+    private BindingPlan(@NonNull Setter[] setters, @Nullable Method cellInited, @Nullable Method postBindView,
+        @Nullable Method postUnBindView) {
+        this.mSetters = setters;
+        this.mCellInited = cellInited;
+        this.mPostBindView = postBindView;
+        this.mPostUnBindView = postUnBindView;
+    }
+
+    @NonNull
+    static BindingPlan compile(@NonNull Class<?> viewClass) {
+        List<Setter> setters = new ArrayList<>();
+        Method cellInited = null;
+        Method postBindView = null;
+        Method postUnBindView = null;
+        for (Method method : viewClass.getDeclaredMethods()) {
+            CellRender cellRender = method.getAnnotation(CellRender.class);
+            Class<?>[] paramClazz = method.getParameterTypes();
+            if (cellRender == null || paramClazz == null || paramClazz.length != 1) {
+                continue;
+            }
+            String name = method.getName();
+            if (METHOD_POST_BIND_VIEW.equals(name)) {
+                postBindView = method;
+            } else if (METHOD_POST_UNBIND_VIEW.equals(name)) {
+                postUnBindView = method;
+            } else if (METHOD_CELL_INITED.equals(name)) {
+                cellInited = method;
+            } else {
+                String key = TextUtils.isEmpty(cellRender.key()) ? null : cellRender.key();
+                setters.add(new Setter(method, key, name, decodeParamType(paramClazz[0])));
+            }
+        }
+        return new BindingPlan(setters.toArray(new Setter[setters.size()]), cellInited, postBindView,
+            postUnBindView);
+    }
+
+    @MainThread
+    void initView(@NonNull BaseCell cell, @NonNull View view) {
+        invoke(mCellInited, view, cell);
+    }
+
+    @MainThread
+    void renderView(@NonNull BaseCell cell, @NonNull View view) {
+        for (Setter setter : mSetters) {
+            invoke(setter.method, view, setter.getValue(cell));
+        }
+    }
+
+    @MainThread
+    void renderView(@NonNull BaseCell cell, @NonNull View view, @NonNull Set<String> changedKeys) {
+        for (Setter setter : mSetters) {
+            if (setter.dependsOn(changedKeys)) {
+                invoke(setter.method, view, setter.getValue(cell));
+            }
+        }
+    }
+
+    @MainThread
+    void postBindView(@NonNull BaseCell cell, @NonNull View view) {
+        invoke(mPostBindView, view, cell);
+    }
+
+    @MainThread
+    void postUnBindView(@NonNull BaseCell cell, @NonNull View view) {
+        invoke(mPostUnBindView, view, cell);
+    }
+
+    private void invoke(@Nullable Method method, View view, Object param) {
+        if (method == null) {
+            return;
+        }
+        mArgs[0] = param;
+        try {
+            method.invoke(view, mArgs);
+        } catch (Exception e) {
+            LogUtils.e(TAG, "Invoke " + method.getName() + " of " + view.getClass().getName() + " error: "
+                + e.getMessage(), e);
+        } finally {
+            mArgs[0] = null;
+        }
+    }
+
+    private static int decodeParamType(Class<?> clazz) {
+        if (clazz.equals(Integer.class) || clazz.equals(int.class)) {
+            return PARAM_INT;
+        } else if (clazz.equals(String.class)) {
+            return PARAM_STRING;
+        } else if (clazz.equals(Boolean.class) || clazz.equals(boolean.class)) {
+            return PARAM_BOOLEAN;
+        } else if (clazz.equals(Double.class) || clazz.equals(double.class)) {
+            return PARAM_DOUBLE;
+        } else if (clazz.equals(JSONArray.class)) {
+            return PARAM_JSON_ARRAY;
+        } else if (clazz.equals(Long.class) || clazz.equals(long.class)) {
+            return PARAM_LONG;
+        } else if (clazz.equals(JSONObject.class)) {
+            return PARAM_JSON_OBJECT;
+        }
+        return PARAM_OTHER;
+    }
+
+    private static final class Setter {
+
+        final Method method;
+
+        /**
+         * key declared by {@link CellRender#key()}, or null
+         */
+        @Nullable
+        final String renderKey;
+
+        /**
+         * name of method, used as key if cell has no param of render key
+         */
+        final String name;
+
+        final int paramType;
+
+        Setter(Method method, @Nullable String renderKey, String name, int paramType) {
+            this.method = method;
+            this.renderKey = renderKey;
+            this.name = name;
+            this.paramType = paramType;
+        }
+
+        boolean dependsOn(Set<String> keys) {
+            return (renderKey != null && keys.contains(renderKey)) || keys.contains(name);
+        }
+
+        Object getValue(BaseCell cell) {
+            String key = null;
+            if (renderKey != null && cell.hasParam(renderKey)) {
+                key = renderKey;
+            } else if (cell.hasParam(name)) {
+                key = name;
+            }
+            if (key == null) {
+                return getDefaultValue();
+            }
+            Object value = cell.optParam(key);
+            if ("null".equals(value)) {
+                return null;
+            }
+            // numbers parsed from json are boxed already, only convert other values so that binding does not box
+            switch (paramType) {
+                case PARAM_INT:
+                    return value instanceof Integer ? value : cell.optIntParam(key);
+                case PARAM_STRING:
+                    return cell.optStringParam(key);
+                case PARAM_BOOLEAN:
+                    return cell.optBoolParam(key);
+                case PARAM_DOUBLE:
+                    return value instanceof Double ? value : cell.optDoubleParam(key);
+                case PARAM_JSON_ARRAY:
+                    return cell.optJsonArrayParam(key);
+                case PARAM_LONG:
+                    return value instanceof Long ? value : cell.optLongParam(key);
+                case PARAM_JSON_OBJECT:
+                    return cell.optJsonObjectParam(key);
+                default:
+                    return cell.optParam(key);
+            }
+        }
+
+        private Object getDefaultValue() {
+            switch (paramType) {
+                case PARAM_INT:
+                    return 0;
+                case PARAM_STRING:
+                    return "";
+                case PARAM_BOOLEAN:
+                    return false;
+                case PARAM_DOUBLE:
+                    return DEFAULT_DOUBLE;
+                case PARAM_LONG:
+                    return 0L;
+                case PARAM_JSON_ARRAY:
+                case PARAM_JSON_OBJECT:
+                    return null;
+                default:
+                    return "";
+            }
+        }
+    }
+}
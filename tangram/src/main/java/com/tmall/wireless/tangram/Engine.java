@@ -36,7 +36,9 @@ import java.util.List;
 public interface Engine extends ServiceManager {
 
     /**
-     * Notify Tangram to update data or view.
+     * Notify Tangram to update data or view. Views of cells not changed since last bound are not mounted again, cells
+     * edited in place should be notified by
+     * {@link TangramEngine#update(com.tmall.wireless.tangram.structure.BaseCell)}.
      * @param layoutUpdate True to update both data and view, false to update data only.
      */
     void refresh(boolean layoutUpdate);
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.tmall.wireless.tangram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import android.view.View;
+import android.widget.ImageView;
+import com.alibaba.android.vlayout.LayoutViewFactory;
+import com.tmall.wireless.tangram.core.R;
+import com.tmall.wireless.tangram.util.ImageUtils;
+
+/**
+ * Factory of card background views for {@link com.alibaba.android.vlayout.VirtualLayoutManager}, views unbound from
+ * cards are released back and reused by next card instead of creating a new one. Views are pooled by kind, image
+ * views created by {@link ImageUtils#createImageInstance(Context)} and plain views are kept apart, only views of the
+ * kind created at the moment are pooled and reused. Image of a
+ * background view is only loaded when its url changes.
+ * Registered as a service of engine, released by {@link com.tmall.wireless.tangram.dataparser.concrete.Card}.
+ */
+public class LayoutViewPool implements LayoutViewFactory {
+
+    private static final int DEFAULT_MAX_PER_KIND = 8;
+
+    private final Map<Class<?>, List<View>> mPool = new HashMap<>();
+
+    private int mMaxPerKind = DEFAULT_MAX_PER_KIND;
+
+    /**
+     * @param maxPerKind max count of idle views kept for each kind
+     */
+    public void setMaxPerKind(int maxPerKind) {
+        this.mMaxPerKind = Math.max(0, maxPerKind);
+        for (List<View> views : mPool.values()) {
+            while (views.size() > mMaxPerKind) {
+                views.remove(views.size() - 1);
+            }
+        }
+    }
+
+    @Override
+    @MainThread
+    public View generateLayoutView(@NonNull Context context) {
+        List<View> views = mPool.get(currentKind());
+        if (views != null) {
+            while (!views.isEmpty()) {
+                View view = views.remove(views.size() - 1);
+                if (view.getParent() == null && view.getContext() == context) {
+                    resetLayoutView(view);
+                    return view;
+                }
+            }
+        }
+        ImageView imageView = ImageUtils.createImageInstance(context);
+        return imageView != null ? imageView : new View(context);
+    }
+
+    /**
+     * Release a background view unbound from its card, it is reused once it is detached. Views not of the kind
+     * created at the moment are dropped.
+     *
+     * @param view background view created by this factory
+     */
+    @MainThread
+    public void release(@NonNull View view) {
+        Class<?> kind = currentKind();
+        if (view.getClass() != kind) {
+            return;
+        }
+        List<View> views = mPool.get(kind);
+        if (views == null) {
+            views = new ArrayList<>(mMaxPerKind);
+            mPool.put(kind, views);
+        }
+        if (views.size() < mMaxPerKind && !views.contains(view)) {
+            resetReleasedView(view);
+            views.add(view);
+        }
+    }
+
+    /**
+     * @return class of views created by {@link #generateLayoutView(Context)}, also the key of pooled views
+     */
+    private static Class<?> currentKind() {
+        return ImageUtils.sImageClass != null ? ImageUtils.sImageClass : View.class;
+    }
+
+    @VisibleForTesting
+    void resetReleasedView(@NonNull View view) {
+        view.animate().cancel();
+        view.setTranslationX(0);
+        view.setTranslationY(0);
+        view.setAlpha(1f);
+    }
+
+    private static void resetLayoutView(View view) {
+        // the next card may have no background image, image of previous card is not shown on it
+        if (view instanceof ImageView && view.getTag(R.id.TANGRAM_BG_IMAGE_URL) != null) {
+            ((ImageView) view).setImageDrawable(null);
+            setShowingImage(view, null);
+        }
+    }
+
+    /**
+     * @param view background view
+     * @param url  url of background image
+     * @return true if the view is showing image of the url, it is not loaded again
+     */
+    public static boolean isShowingImage(@NonNull View view, @NonNull String url) {
+        return url.equals(view.getTag(R.id.TANGRAM_BG_IMAGE_URL));
+    }
+
+    /**
+     * Record url of image shown by a background view.
+     */
+    public static void setShowingImage(@NonNull View view, String url) {
+        view.setTag(R.id.TANGRAM_BG_IMAGE_URL, url);
+    }
+
+    @MainThread
+    public void clear() {
+        mPool.clear();
+    }
+}
@@ -24,18 +24,16 @@
 
 package com.tmall.wireless.tangram;
 
-import java.lang.reflect.Method;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.alibaba.android.vlayout.VirtualLayoutManager;
 
 import android.os.Build.VERSION;
-import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 import com.tmall.wireless.tangram.core.service.ServiceManager;
 import com.tmall.wireless.tangram.structure.BaseCell;
-import com.tmall.wireless.tangram.structure.CellRender;
 import com.tmall.wireless.tangram.structure.view.ITangramViewLifeCycle;
 import com.tmall.wireless.tangram.support.CellSupport;
 import com.tmall.wireless.tangram.support.ExposureSupport;
@@ -45,7 +43,6 @@ import com.tmall.wireless.vaf.virtualview.core.IContainer;
 import com.tmall.wireless.vaf.virtualview.core.ViewBase;
 import com.tmall.wireless.vaf.virtualview.event.EventData;
 import com.tmall.wireless.vaf.virtualview.event.EventManager;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import static com.tmall.wireless.tangram.dataparser.concrete.Style.MARGIN_BOTTOM_INDEX;
@@ -63,12 +60,14 @@ public class MVHelper {
 
     private VafContext mVafContext;
 
-    private ConcurrentHashMap<BaseCell, ConcurrentHashMap<Method, Object>> methodMap = new ConcurrentHashMap<>(128);
-    private ConcurrentHashMap<Class, Method[]> methodCacheMap = new ConcurrentHashMap<>(128);
-    private ConcurrentHashMap<BaseCell, Method> postBindMap = new ConcurrentHashMap<>(128);
-    private ConcurrentHashMap<BaseCell, Method> postUnBindMap = new ConcurrentHashMap<>(128);
-    private ConcurrentHashMap<BaseCell, Method> cellInitedMap = new ConcurrentHashMap<>(128);
-    private ConcurrentHashMap<BaseCell, String> cellFlareIdMap = new ConcurrentHashMap<>(128);
+    /*
+     * binding plans by view class, they are immutable and kept across reset
+     */
+    private final ConcurrentHashMap<Class<?>, BindingPlan> mBindingPlans = new ConcurrentHashMap<>(64);
+
+    private boolean mSizeCacheEnabled;
+
+    private int mAvailableWidth;
 
     public MVHelper(MVResolver mvResolver) {
         this.mvResolver = mvResolver;
@@ -86,6 +85,26 @@ public class MVHelper {
         mVafContext = vafContext;
     }
 
+    /**
+     * Reuse height measured in last layout for cells whose content and available width do not change, so the
+     * measure pass of them is cheap. Only enable it if the height of cells does not change without
+     * {@link Engine#update(BaseCell)}, e.g. cells with images loaded in wrap_content views.
+     */
+    public void setSizeCacheEnabled(boolean enable) {
+        mSizeCacheEnabled = enable;
+    }
+
+    public boolean isSizeCacheEnabled() {
+        return mSizeCacheEnabled;
+    }
+
+    /**
+     * inner use, width available to cells, sizes measured with a different width are not reused.
+     */
+    public void setAvailableWidth(int availableWidth) {
+        mAvailableWidth = availableWidth;
+    }
+
     public void parseCell(BaseCell cell, JSONObject json) {
         mvResolver.parseCell(this, cell, json);
     }
@@ -94,14 +113,16 @@ public class MVHelper {
      * FIXME sholud be called after original component's postUnBind method excuted
      */
     public void reset() {
-        methodMap.clear();
-        postBindMap.clear();
-        postUnBindMap.clear();
-        cellInitedMap.clear();
-        cellFlareIdMap.clear();
         mvResolver.reset();
     }
 
+    /**
+     * Release everything cached for a cell, called when the cell is dropped without rebuilding the whole page.
+     */
+    public void release(BaseCell cell) {
+        mvResolver.unregister(cell);
+    }
+
     public boolean isValid(BaseCell cell, ServiceManager serviceManager) {
         if (serviceManager != null) {
             CellSupport cellSupport = serviceManager.getService(CellSupport.class);
@@ -134,7 +155,6 @@ public class MVHelper {
                 }
                 renderStyle(cell, view);
             } else {
-                loadMethod(cell, view);
                 initView(cell, view);
                 renderView(cell, view);
                 renderStyle(cell, view);
@@ -160,16 +180,43 @@ public class MVHelper {
         }
     }
 
-    public String getCellUniqueId(BaseCell cell) {
-        String flareId = cellFlareIdMap.get(cell);
-        if (flareId == null) {
-            flareId = String.format("%s_%s", cell.parent == null ? "null" : cell.parent.id, cell.pos);
-            cellFlareIdMap.put(cell, flareId);
+    /**
+     * Called instead of {@link #mountView(BaseCell, View)} when view is bound again to the same cell whose content
+     * has not changed since last mount, only registry and post bind callback of {@link CellSupport} are refreshed.
+     */
+    public void remountView(BaseCell cell, View view) {
+        mvResolver.register(getCellUniqueId(cell), cell, view);
+        if (cell.serviceManager != null) {
+            CellSupport cellSupport = cell.serviceManager.getService(CellSupport.class);
+            if (cellSupport != null) {
+                cellSupport.postBindView(cell, view);
+            }
+        }
+    }
+
+    /**
+     * Rerun {@link com.tmall.wireless.tangram.structure.CellRender} setters bound to changed keys only.
+     *
+     * @return false if view is not bound by setters or style changed, it should be mounted again
+     */
+    public boolean remountView(BaseCell cell, View view, Set<String> changedKeys) {
+        if (view instanceof IContainer || view instanceof ITangramViewLifeCycle
+            || mvResolver.isCompatibleType(cell.stringType) || changedKeys.contains(MVResolver.KEY_STYLE)) {
+            return false;
         }
-        return flareId;
+        getBindingPlan(view).renderView(cell, view, changedKeys);
+        remountView(cell, view);
+        return true;
+    }
+
+    public String getCellUniqueId(BaseCell cell) {
+        return cell.getUniqueId();
     }
 
     public void unMountView(BaseCell cell, View view) {
+        if (mSizeCacheEnabled) {
+            cacheMeasuredSize(cell, view);
+        }
         if (view instanceof IContainer) {
             ViewBase vb = ((IContainer)view).getVirtualView();
             vb.reset();
@@ -189,128 +236,27 @@ public class MVHelper {
         if (mvResolver.isCompatibleType(cell.stringType)) {
             mvResolver.getCellClass(cell.stringType).cast(cell).unbindView(view);
         }
+        mvResolver.unregister(cell);
     }
 
-    private void loadMethod(BaseCell cell, View view) {
-        if (view instanceof ITangramViewLifeCycle) {
-            return;
-        }
-        if (methodMap.get(cell) != null) {
-            return;
-        }
-
-        ConcurrentHashMap<Method, Object> paramMap = new ConcurrentHashMap<>();
-
-        Method[] methods;
-        if (methodCacheMap.get(view.getClass()) == null) {
-            methods = view.getClass().getDeclaredMethods();
-            methodCacheMap.put(view.getClass(), methods);
-        } else {
-            methods = methodCacheMap.get(view.getClass());
-        }
-        CellRender cellRender;
-        Class[] paramClazz;
-        for (Method method : methods) {
-            cellRender = method.getAnnotation(CellRender.class);
-            paramClazz = method.getParameterTypes();
-
-            if (!method.isAnnotationPresent(CellRender.class) ||
-                paramClazz == null || paramClazz.length != 1) {
-                continue;
-            }
-
-            if (method.getName().equals("postBindView")) {
-                postBindMap.put(cell, method);
-                continue;
-            }
-
-            if (method.getName().equals("postUnBindView")) {
-                postUnBindMap.put(cell, method);
-                continue;
-            }
-
-            if (method.getName().equals("cellInited")) {
-                cellInitedMap.put(cell, method);
-                continue;
-            }
-
-            if (!TextUtils.isEmpty(cellRender.key()) && cell.hasParam(cellRender.key())) {
-                if ("null".equals(cell.optParam(cellRender.key()))) {
-                    paramMap.put(method, null);
-                } else if (paramClazz[0].equals(Integer.class) || paramClazz[0].equals(int.class)) {
-                    paramMap.put(method, cell.optIntParam(cellRender.key()));
-                } else if (paramClazz[0].equals(String.class)) {
-                    paramMap.put(method, cell.optStringParam(cellRender.key()));
-                } else if (paramClazz[0].equals(Boolean.class) || paramClazz[0].equals(boolean.class)) {
-                    paramMap.put(method, cell.optBoolParam(cellRender.key()));
-                } else if (paramClazz[0].equals(Double.class) || paramClazz[0].equals(double.class)) {
-                    paramMap.put(method, cell.optDoubleParam(cellRender.key()));
-                } else if (paramClazz[0].equals(JSONArray.class)) {
-                    paramMap.put(method, cell.optJsonArrayParam(cellRender.key()));
-                } else if (paramClazz[0].equals(Long.class) || paramClazz[0].equals(long.class)) {
-                    paramMap.put(method, cell.optLongParam(cellRender.key()));
-                } else if (paramClazz[0].equals(JSONObject.class)) {
-                    paramMap.put(method, cell.optJsonObjectParam(cellRender.key()));
-                } else {
-                    paramMap.put(method, cell.optParam(cellRender.key()));
-                }
-            } else if (cell.hasParam(method.getName())) {
-                if ("null".equals(cell.optParam(method.getName()))) {
-                    paramMap.put(method, null);
-                } else if (paramClazz[0].equals(Integer.class) || paramClazz[0].equals(int.class)) {
-                    paramMap.put(method, cell.optIntParam(method.getName()));
-                } else if (paramClazz[0].equals(String.class)) {
-                    paramMap.put(method, cell.optStringParam(method.getName()));
-                } else if (paramClazz[0].equals(Boolean.class) || paramClazz[0].equals(boolean.class)) {
-                    paramMap.put(method, cell.optBoolParam(method.getName()));
-                } else if (paramClazz[0].equals(Double.class) || paramClazz[0].equals(double.class)) {
-                    paramMap.put(method, cell.optDoubleParam(method.getName()));
-                } else if (paramClazz[0].equals(JSONArray.class)) {
-                    paramMap.put(method, cell.optJsonArrayParam(method.getName()));
-                } else if (paramClazz[0].equals(Long.class) || paramClazz[0].equals(long.class)) {
-                    paramMap.put(method, cell.optLongParam(method.getName()));
-                } else if (paramClazz[0].equals(JSONObject.class)) {
-                    paramMap.put(method, cell.optJsonObjectParam(method.getName()));
-                } else {
-                    paramMap.put(method, cell.optParam(method.getName()));
-                }
-            } else {
-                if (paramClazz[0].equals(Integer.class) || paramClazz[0].equals(int.class)) {
-                    paramMap.put(method, 0);
-                } else if (paramClazz[0].equals(String.class)) {
-                    paramMap.put(method, "");
-                } else if (paramClazz[0].equals(Boolean.class) || paramClazz[0].equals(boolean.class)) {
-                    paramMap.put(method, false);
-                } else if (paramClazz[0].equals(Double.class) || paramClazz[0].equals(double.class)) {
-                    paramMap.put(method, 0);
-                } else if (paramClazz[0].equals(JSONArray.class)) {
-                    paramMap.put(method, null);
-                } else if (paramClazz[0].equals(Long.class) || paramClazz[0].equals(long.class)) {
-                    paramMap.put(method, 0);
-                } else if (paramClazz[0].equals(JSONObject.class)) {
-                    paramMap.put(method, null);
-                } else {
-                    paramMap.put(method, "");
-                }
+    private BindingPlan getBindingPlan(View view) {
+        Class<?> viewClass = view.getClass();
+        BindingPlan plan = mBindingPlans.get(viewClass);
+        if (plan == null) {
+            plan = BindingPlan.compile(viewClass);
+            BindingPlan existing = mBindingPlans.putIfAbsent(viewClass, plan);
+            if (existing != null) {
+                plan = existing;
             }
         }
-
-        if (!paramMap.isEmpty()) {
-            methodMap.put(cell, paramMap);
-        }
+        return plan;
     }
 
     private void initView(BaseCell cell, View view) {
         if (view instanceof ITangramViewLifeCycle) {
             ((ITangramViewLifeCycle) view).cellInited(cell);
         } else {
-            if (cellInitedMap.get(cell) != null) {
-                try {
-                    cellInitedMap.get(cell).invoke(view, cell);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+            getBindingPlan(view).initView(cell, view);
         }
     }
 
@@ -318,18 +264,37 @@ public class MVHelper {
         if (view instanceof ITangramViewLifeCycle) {
             return;
         }
-        if (methodMap.get(cell) == null) {
+        getBindingPlan(view).renderView(cell, view);
+    }
+
+    private void cacheMeasuredSize(BaseCell cell, View view) {
+        if (cell.style == null || cell.style.height >= 0 || view.isLayoutRequested()) {
             return;
         }
-        for (Method method : methodMap.get(cell).keySet()) {
-            try {
-                method.invoke(view, methodMap.get(cell).get(method));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        int width = resolveCellWidth(cell);
+        int height = view.getMeasuredHeight();
+        if (width > 0 && height > 0) {
+            cell.cacheMeasuredSize(width, height);
         }
     }
 
+    /**
+     * @return width the cell is laid out with, -1 if its card can not resolve it
+     */
+    private int resolveCellWidth(BaseCell cell) {
+        if (mAvailableWidth <= 0 || cell.parent == null) {
+            return -1;
+        }
+        if (cell.style.width >= 0) {
+            return cell.style.width;
+        }
+        int width = cell.parent.resolveCellWidth(cell, mAvailableWidth);
+        if (width <= 0) {
+            return -1;
+        }
+        return width - cell.style.margin[MARGIN_LEFT_INDEX] - cell.style.margin[MARGIN_RIGHT_INDEX];
+    }
+
     private void renderStyle(BaseCell cell, View view) {
         renderLayout(cell, view);
         renderBackground(cell, view);
@@ -350,9 +315,14 @@ public class MVHelper {
             if (lp instanceof VirtualLayoutManager.LayoutParams) {
                 VirtualLayoutManager.LayoutParams params = (VirtualLayoutManager.LayoutParams) lp;
 
+                float aspectRatio = Float.isNaN(cell.style.aspectRatio) ? cell.getPrecomputedRatio() : cell.style.aspectRatio;
+                int cachedHeight = mSizeCacheEnabled && Float.isNaN(aspectRatio) ? cell.getCachedHeight(resolveCellWidth(cell)) : -1;
                 if (cell.style.height >= 0) {
                     params.storeOriginHeight();
                     params.height = cell.style.height;
+                } else if (cachedHeight >= 0) {
+                    params.storeOriginHeight();
+                    params.height = cachedHeight;
                 } else {
                     params.restoreOriginHeight();
                 }
@@ -364,7 +334,7 @@ public class MVHelper {
                     params.restoreOriginWidth();
                 }
 
-                params.mAspectRatio = cell.style.aspectRatio;
+                params.mAspectRatio = aspectRatio;
 
                 params.zIndex = cell.style.zIndex;
                 if (params.zIndex == 0) {
@@ -418,14 +388,8 @@ public class MVHelper {
         }
         if (view instanceof ITangramViewLifeCycle) {
             ((ITangramViewLifeCycle) view).postBindView(cell);
-        } else {
-            if (postBindMap.get(cell) != null) {
-                try {
-                    postBindMap.get(cell).invoke(view, cell);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+        } else if (!(view instanceof IContainer)) {
+            getBindingPlan(view).postBindView(cell, view);
         }
         if (mvResolver.isCompatibleType(cell.stringType)) {
             mvResolver.getCellClass(cell.stringType).cast(cell).postBindView(view);
@@ -435,14 +399,8 @@ public class MVHelper {
     private void postUnMountView(BaseCell cell, View view) {
         if (view instanceof ITangramViewLifeCycle) {
             ((ITangramViewLifeCycle) view).postUnBindView(cell);
-        } else {
-            if (postUnBindMap.get(cell) != null) {
-                try {
-                    postUnBindMap.get(cell).invoke(view, cell);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+        } else if (!(view instanceof IContainer)) {
+            getBindingPlan(view).postUnBindView(cell, view);
         }
     }
 }
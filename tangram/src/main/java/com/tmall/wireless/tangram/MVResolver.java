@@ -36,8 +36,10 @@ import com.tmall.wireless.tangram.util.Utils;
 
 import org.json.JSONObject;
 
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.List;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -65,14 +67,18 @@ public class MVResolver {
 
     private ConcurrentHashMap<String, Class<? extends BaseCell>> typeCellMap = new ConcurrentHashMap(64);
 
-    private ConcurrentHashMap<String, Card> idCardMap = new ConcurrentHashMap<>();
+    /*
+     * cards are owned by adapter, only weakly referenced here so that cards of previous pages can be collected
+     */
+    private ConcurrentHashMap<String, WeakReference<Card>> idCardMap = new ConcurrentHashMap<>();
 
-    private ConcurrentHashMap<BaseCell, View> mvMap = new ConcurrentHashMap<>(128);
+    /*
+     * cells and views are mapped only while bound, both sides weakly referenced in case unbind is missed, bindings are
+     * kept per view and reused when the view is bound to another cell
+     */
+    private final WeakHashMap<BaseCell, Binding> mvMap = new WeakHashMap<>(64);
 
-    private ConcurrentHashMap<View, BaseCell> vmMap = new ConcurrentHashMap<>(128);
-
-    @Deprecated
-    private ConcurrentHashMap<String, View> idViewMap = new ConcurrentHashMap<>(128);
+    private final WeakHashMap<View, Binding> vmMap = new WeakHashMap<>(64);
 
     private ServiceManager mServiceManager;
 
@@ -96,42 +102,80 @@ public class MVResolver {
         return typeCellMap.get(type);
     }
 
-    public void register(String cellId, BaseCell cell, View view) {
-        mvMap.put(cell, view);
-        vmMap.put(view, cell);
-
-        idViewMap.put(cellId, view);
+    public synchronized void register(String cellId, BaseCell cell, View view) {
+        Binding binding = vmMap.get(view);
+        if (binding == null) {
+            binding = new Binding(view);
+            vmMap.put(view, binding);
+        }
+        BaseCell previousCell = binding.getCell();
+        if (previousCell != cell) {
+            // view reused by another cell
+            if (previousCell != null && mvMap.get(previousCell) == binding) {
+                mvMap.remove(previousCell);
+            }
+            // cell moved from another view
+            Binding previous = mvMap.get(cell);
+            if (previous != null && previous != binding) {
+                previous.clear();
+            }
+            binding.cell = new WeakReference<>(cell);
+            mvMap.put(cell, binding);
+        }
+        binding.cellId = cellId;
     }
 
     public void setCards(List<Card> list) {
         for (Card card : list) {
             if (!TextUtils.isEmpty(card.id)) {
-                idCardMap.put(card.id, card);
+                idCardMap.put(card.id, new WeakReference<>(card));
+            }
+        }
+        Iterator<WeakReference<Card>> iterator = idCardMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
             }
         }
     }
 
     public Card findCardById(String id) {
-        return idCardMap.get(id);
+        WeakReference<Card> ref = idCardMap.get(id);
+        return ref != null ? ref.get() : null;
+    }
+
+    public synchronized void unregister(BaseCell cell) {
+        Binding binding = mvMap.remove(cell);
+        if (binding != null && binding.getCell() == cell) {
+            binding.clear();
+        }
     }
 
-    public void reset() {
+    public synchronized void reset() {
+        for (Binding binding : vmMap.values()) {
+            binding.clear();
+        }
         mvMap.clear();
-        vmMap.clear();
-        idViewMap.clear();
     }
 
-    public View getView(BaseCell cell) {
-        return mvMap.get(cell);
+    public synchronized View getView(BaseCell cell) {
+        Binding binding = mvMap.get(cell);
+        return binding != null ? binding.view.get() : null;
     }
 
     @Deprecated
-    public View getView(String uniqueId) {
-        return idViewMap.get(uniqueId);
+    public synchronized View getView(String uniqueId) {
+        for (Binding binding : vmMap.values()) {
+            if (uniqueId != null && uniqueId.equals(binding.cellId)) {
+                return binding.view.get();
+            }
+        }
+        return null;
     }
 
-    public BaseCell getCell(View view) {
-        return vmMap.get(view);
+    public synchronized BaseCell getCell(View view) {
+        Binding binding = vmMap.get(view);
+        return binding != null ? binding.getCell() : null;
     }
 
     public Class<? extends View> getViewClass(String type) {
@@ -159,6 +203,8 @@ public class MVResolver {
             JSONObject styleJson = json.optJSONObject(KEY_STYLE);
             parseStyle(cell, styleJson);
             parseBizParams(cell, styleJson);
+            cell.precomputeSize();
+            cell.invalidateContentVersion();
         } else {
             cell.extras = new JSONObject();
         }
@@ -187,5 +233,29 @@ public class MVResolver {
         }
     }
 
+    private static final class Binding {
+
+        final WeakReference<View> view;
+
+        @Nullable
+        WeakReference<BaseCell> cell;
+
+        @Nullable
+        String cellId;
+
+        Binding(View view) {
+            this.view = new WeakReference<>(view);
+        }
+
+        @Nullable
+        BaseCell getCell() {
+            return cell != null ? cell.get() : null;
+        }
+
+        void clear() {
+            cell = null;
+            cellId = null;
+        }
+    }
 
 }
@@ -25,6 +25,7 @@
 package com.tmall.wireless.tangram;
 
 import com.alibaba.android.vlayout.extend.PerformanceMonitor;
+import com.tmall.wireless.tangram.core.adapter.SharedViewPool;
 import com.tmall.wireless.tangram.dataparser.DataParser;
 import com.tmall.wireless.tangram.dataparser.IAdapterBuilder;
 import com.tmall.wireless.tangram.dataparser.concrete.BaseCardBinderResolver;
@@ -381,6 +382,8 @@ public class TangramBuilder {
 
         private DataParser mDataParser;
 
+        private SharedViewPool mSharedViewPool;
+
         protected InnerBuilder(@NonNull final Context context, DefaultResolverRegistry registry) {
             this.mContext = context;
             this.mDefaultResolverRegistry = registry;
@@ -492,6 +495,17 @@ public class TangramBuilder {
             this.mDataParser = dataParser;
         }
 
+        /**
+         * Share recycled views among engines built by this builder after this call, and among nested engines sharing
+         * the same context. Views are only reused by engines of the context they are created with.
+         * @param maxTotal max count of recycled views of all engines
+         */
+        public void enableSharedViewPool(int maxTotal) {
+            if (mSharedViewPool == null) {
+                mSharedViewPool = new SharedViewPool(maxTotal);
+            }
+        }
+
         public int getCellTypeCount() {
             if (mDefaultResolverRegistry != null) {
                 return mDefaultResolverRegistry.mDefaultCellBinderResolver.size();
@@ -517,6 +531,9 @@ public class TangramBuilder {
                 mDefaultResolverRegistry.mDefaultCellBinderResolver);
             tangramEngine.register(BaseCardBinderResolver.class,
                 mDefaultResolverRegistry.mDefaultCardBinderResolver);
+            if (mSharedViewPool != null) {
+                tangramEngine.register(SharedViewPool.class, mSharedViewPool);
+            }
 
             // add other features service
             tangramEngine.register(TimerSupport.class, new TimerSupport());
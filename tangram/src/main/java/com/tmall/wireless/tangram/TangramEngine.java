@@ -27,8 +27,12 @@ package com.tmall.wireless.tangram;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.alibaba.android.vlayout.LayoutHelper;
 import com.alibaba.android.vlayout.Range;
@@ -41,6 +45,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.util.Pair;
 import android.view.View;
+import com.tmall.wireless.tangram.core.adapter.AdapterState;
+import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.core.adapter.PartialUpdate;
 import com.tmall.wireless.tangram.dataparser.DataParser;
 import com.tmall.wireless.tangram.dataparser.IAdapterBuilder;
 import com.tmall.wireless.tangram.dataparser.concrete.Card;
@@ -62,11 +69,23 @@ import com.tmall.wireless.tangram.op.ReplaceGroupOp;
 import com.tmall.wireless.tangram.op.UpdateCellOp;
 import com.tmall.wireless.tangram.structure.BaseCell;
 import com.tmall.wireless.tangram.support.ExposureSupport;
+import com.tmall.wireless.tangram.support.PrewarmSupport;
+import com.tmall.wireless.tangram.support.RefreshScheduler;
+import com.tmall.wireless.tangram.support.ScrollOffsetSupport;
 import com.tmall.wireless.tangram.support.SimpleClickSupport;
+import com.tmall.wireless.tangram.support.WindowedFeedSupport;
 import com.tmall.wireless.tangram.support.async.CardLoadSupport;
+import com.tmall.wireless.tangram.support.async.PagedCardDataSource;
+import com.tmall.wireless.tangram.util.LogUtils;
+import com.tmall.wireless.tangram.util.Preconditions;
 import com.tmall.wireless.tangram.util.Predicate;
 import com.tmall.wireless.vaf.virtualview.core.ViewCache;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -76,7 +95,9 @@ import org.json.JSONObject;
  *
  * The core of Tangram used to access data, bind view, register service.
  */
-public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card, BaseCell> implements Engine {
+public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card, BaseCell> implements Engine, CardRefresher {
+
+    private static final String TAG = "TangramEngine";
 
     private static final int NO_SWIPE = -1;
 
@@ -85,9 +106,51 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         @NonNull IAdapterBuilder<Card, BaseCell> adapterBuilder) {
         super(context, dataParser, adapterBuilder);
         this.register(DataParser.class, dataParser);
+        this.register(RefreshScheduler.class, mRefreshScheduler);
     }
 
-    private Runnable updateRunnable;
+    private final RefreshScheduler mRefreshScheduler = new RefreshScheduler(new RefreshScheduler.OnRefreshListener() {
+        @Override
+        public boolean onRefresh(boolean layoutUpdated) {
+            RecyclerView contentView = getContentView();
+            if (contentView == null || mGroupBasicAdapter == null) {
+                return true;
+            }
+            if (contentView.isComputingLayout()) {
+                //to prevent notify update when recyclerView is in computingLayout  process, retry in next frame
+                return false;
+            }
+            mGroupBasicAdapter.notifyUpdate(layoutUpdated);
+
+            if (mSwipeItemTouchListener != null) {
+                mSwipeItemTouchListener.updateCurrCard();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean onRefreshCards(@NonNull List<Card> cards) {
+            RecyclerView contentView = getContentView();
+            if (contentView == null || mGroupBasicAdapter == null) {
+                return true;
+            }
+            if (contentView.isComputingLayout()) {
+                return false;
+            }
+            for (int i = 0, size = cards.size(); i < size; i++) {
+                if (!mGroupBasicAdapter.notifyCardChanged(cards.get(i))) {
+                    // card can not be updated alone, fall back to rebuild all cards
+                    mGroupBasicAdapter.notifyUpdate(true);
+                    break;
+                }
+            }
+
+            if (mSwipeItemTouchListener != null) {
+                mSwipeItemTouchListener.updateCurrCard();
+            }
+            return true;
+        }
+    });
 
     private int mPreLoadNumber = 5;
 
@@ -95,12 +158,23 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
 
     private boolean mEnableLoadFirstPageCard = true;
 
+    /**
+     * scrolled distance, accumulated by scroll events, or absolute scroll offset if {@link ScrollOffsetSupport} is
+     * registered
+     */
     public int scrolledY;
 
     public void enableAutoLoadMore(boolean enableAutoLoadMore) {
         this.mEnableAutoLoadMore = enableAutoLoadMore;
     }
 
+    /**
+     * @return scheduler which merges refresh requests into one per frame
+     */
+    public RefreshScheduler getRefreshScheduler() {
+        return mRefreshScheduler;
+    }
+
     public void setPreLoadNumber(int preLoadNumber) {
         if (preLoadNumber >= 0)
             this.mPreLoadNumber = preLoadNumber;
@@ -111,6 +185,19 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
     private SwipeItemTouchListener mSwipeItemTouchListener = null;
     private int mSwipeCardActionEdge = -1;
 
+    private int mTransactionDepth = 0;
+
+    private List<Card> mTransactionGroups;
+
+    private final Set<BaseCell> mTransactionUpdatedCells = new HashSet<>();
+
+    /*
+     * keys of cells updated partially in transaction, cells updated fully are not recorded here
+     */
+    private final Map<BaseCell, Set<String>> mTransactionUpdatedKeys = new HashMap<>();
+
+    private Disposable mPendingState;
+
     /**
      * {@inheritDoc}
      */
@@ -129,7 +216,14 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
             public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
                 super.onScrolled(recyclerView, dx, dy);
                 if (recyclerView != null) {
-                    scrolledY += dy;
+                    // also called after layout with 0 delta
+                    ScrollOffsetSupport scrollOffsetSupport = getService(ScrollOffsetSupport.class);
+                    if (scrollOffsetSupport != null) {
+                        scrollOffsetSupport.onLayout();
+                        scrolledY = scrollOffsetSupport.getScrollOffset();
+                    } else {
+                        scrolledY += dy;
+                    }
                 }
             }
         });
@@ -160,8 +254,10 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         if (contentView != null && mSwipeItemTouchListener != null) {
             contentView.removeOnItemTouchListener(mSwipeItemTouchListener);
             mSwipeItemTouchListener = null;
-            contentView.removeCallbacks(updateRunnable);
         }
+        mRefreshScheduler.cancel();
+        cancelPendingState();
+        cancelPrewarmViews();
         super.unbindView();
     }
 
@@ -187,7 +283,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
             }
         }
 
-        for (int i = firstCardIndex; i <= lastPosition; i++) {
+        for (int i = firstPosition; i <= lastPosition; i++) {
             firstCardIndex = mGroupBasicAdapter.findCardIdxFor(i);
             if (firstCardIndex >= 0) {
                 break;
@@ -196,10 +292,27 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
 
         if (lastCardIndex < 0 || firstCardIndex < 0) return;
 
+        final WindowedFeedSupport windowedFeedSupport = getService(WindowedFeedSupport.class);
+        if (windowedFeedSupport != null) {
+            windowedFeedSupport.onScrolled(firstCardIndex, lastCardIndex);
+        }
+
         final CardLoadSupport loadSupport = getService(CardLoadSupport.class);
         if (loadSupport == null) return;
 
-        List<Card> cards = mGroupBasicAdapter.getGroups();
+        List<Card> cards = mGroupBasicAdapter.getGroupsView();
+        if (loadSupport.hasDataSource()) {
+            for (int i = firstCardIndex; i <= lastCardIndex; i++) {
+                PagedCardDataSource dataSource = loadSupport.getDataSource(cards.get(i));
+                Pair<Range<Integer>, Card> cardRange = mGroupBasicAdapter.getCardRange(i);
+                if (dataSource != null && cardRange != null) {
+                    int lower = cardRange.first.getLower();
+                    dataSource.onVisibleRangeChanged(Math.max(firstPosition, lower) - lower,
+                        Math.min(lastPosition, cardRange.first.getUpper() - 1) - lower);
+                }
+            }
+        }
+
         //check the loadmore state of current card first  range is inclusive-exclusive
         Card current = cards.get(lastCardIndex);
         Pair<Range<Integer>, Card> pair = mGroupBasicAdapter.getCardRange(lastCardIndex);
@@ -256,10 +369,110 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      */
     @Override
     public void setData(@Nullable List<Card> data) {
+        ScrollOffsetSupport scrollOffsetSupport = getService(ScrollOffsetSupport.class);
+        if (scrollOffsetSupport != null) {
+            scrollOffsetSupport.saveScrollOffset();
+        }
         super.setData(data);
+        if (scrollOffsetSupport != null) {
+            scrollOffsetSupport.restoreScrollOffset();
+        }
+        prewarmViews();
+        loadFirstPageCard();
+    }
+
+    /**
+     * Set parsed cards like {@link #setData(List)}, but ranges, layoutHelpers of new cards, view types and the
+     * difference with current cells are calculated on computation thread. Cells of cards are taken on main thread
+     * before, the swap and minimal notifications are done on main thread after. If data is changed before the new
+     * state is applied, cards are applied synchronously instead.
+     * A previous call not applied yet is cancelled.
+     *
+     * @param data Parsed data list.
+     * @return disposable to cancel applying
+     * @since 3.0.0
+     */
+    public Disposable setDataAsync(@Nullable List<Card> data) {
+        Preconditions.checkState(mGroupBasicAdapter != null, "Must call bindView() first");
+        cancelPendingState();
+
+        final GroupBasicAdapter<Card, BaseCell> adapter = mGroupBasicAdapter;
+        final AdapterState<Card, BaseCell> state = adapter.newState(data);
+        mPendingState = Observable.just(state)
+                .observeOn(Schedulers.computation())
+                .map(new Function<AdapterState<Card, BaseCell>, AdapterState<Card, BaseCell>>() {
+                    @Override
+                    public AdapterState<Card, BaseCell> apply(AdapterState<Card, BaseCell> s) throws Exception {
+                        adapter.prepareState(s);
+                        return s;
+                    }
+                })
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Consumer<AdapterState<Card, BaseCell>>() {
+                    @Override
+                    public void accept(AdapterState<Card, BaseCell> s) throws Exception {
+                        applyState(adapter, s);
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) throws Exception {
+                        LogUtils.e(TAG, "Prepare state error: " + throwable.getMessage(), throwable);
+                        applyState(adapter, state);
+                    }
+                });
+        return mPendingState;
+    }
+
+    private void applyState(GroupBasicAdapter<Card, BaseCell> adapter, AdapterState<Card, BaseCell> state) {
+        mPendingState = null;
+        if (adapter != mGroupBasicAdapter) {
+            return;
+        }
+        // the same as setData
+        MVHelper mvHelper = getService(MVHelper.class);
+        if (mvHelper != null) {
+            mvHelper.reset();
+        }
+        ScrollOffsetSupport scrollOffsetSupport = getService(ScrollOffsetSupport.class);
+        if (scrollOffsetSupport != null) {
+            scrollOffsetSupport.saveScrollOffset();
+        }
+        if (!state.isPrepared() || !adapter.applyState(state)) {
+            // data changed while preparing, ranges must be calculated again
+            adapter.invalidateItemTypes();
+            adapter.commitGroups(new ArrayList<>(state.getGroups()), Collections.<BaseCell>emptyList());
+        }
+        if (scrollOffsetSupport != null) {
+            scrollOffsetSupport.restoreScrollOffset();
+        }
+        if (mSwipeItemTouchListener != null) {
+            mSwipeItemTouchListener.updateCurrCard();
+        }
+        prewarmViews();
         loadFirstPageCard();
     }
 
+    private void cancelPendingState() {
+        if (mPendingState != null) {
+            mPendingState.dispose();
+            mPendingState = null;
+        }
+    }
+
+    private void prewarmViews() {
+        PrewarmSupport prewarmSupport = getService(PrewarmSupport.class);
+        if (prewarmSupport != null) {
+            prewarmSupport.prewarm();
+        }
+    }
+
+    private void cancelPrewarmViews() {
+        PrewarmSupport prewarmSupport = getService(PrewarmSupport.class);
+        if (prewarmSupport != null) {
+            prewarmSupport.cancel();
+        }
+    }
+
     /**
      *
      * @param enable True to auto trigger loading data for card whose's position in within 0 to {{@link #mPreLoadNumber}}.
@@ -283,7 +496,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
 
         boolean loadedMore = false;
 
-        List<Card> cards = mGroupBasicAdapter.getGroups();
+        List<Card> cards = mGroupBasicAdapter.getGroupsView();
 
         for (int i = 0; i < Math.min(mPreLoadNumber, cards.size()); i++) {
             Card card = cards.get(i);
@@ -358,12 +571,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      */
     public BaseCell findCellById(String id) {
         if (mGroupBasicAdapter != null && id != null) {
-            List<BaseCell> cells = mGroupBasicAdapter.getComponents();
-            for (int i = 0, size = cells.size(); i < size; i++) {
-                if (id.equals(cells.get(i).id)) {
-                    return cells.get(i);
-                }
-            }
+            return mGroupBasicAdapter.findComponentById(id);
         }
         return null;
     }
@@ -379,24 +587,8 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
             return;
         }
 
-        if (contentView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
-            // contentView.stopScroll();
-        }
-
-        updateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (!contentView.isComputingLayout()) {
-                    //to prevent notify update when recyclerView is in computingLayout  process
-                    mGroupBasicAdapter.notifyUpdate(layoutUpdated);
-
-                    if (mSwipeItemTouchListener != null) {
-                        mSwipeItemTouchListener.updateCurrCard();
-                    }
-                }
-            }
-        };
-        contentView.post(updateRunnable);
+        // requests in the same frame are merged into one notify
+        mRefreshScheduler.schedule(layoutUpdated);
     }
 
     /**
@@ -407,13 +599,24 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         this.refresh(true);
     }
 
+    /**
+     * Notify Tangram to update data and view of one card only, other cards are not rebound.
+     * @param card The card whose cells changed.
+     */
+    @Override
+    public void refreshCard(@NonNull Card card) {
+        if (card == null || getContentView() == null) {
+            return;
+        }
+        mRefreshScheduler.schedule(card);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void replaceCard(Card oldCard, Card newCard) {
-        List<Card> groups = this.mGroupBasicAdapter.getGroups();
-        int index = groups.indexOf(oldCard);
+        int index = this.mGroupBasicAdapter.findCardIdxForCard(oldCard);
         if (index >= 0) {
             replaceData(index, Collections.singletonList(newCard));
         }
@@ -438,7 +641,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         List<BaseCell> cells = card.getCells();
         if (cells.size() > 0) {
             BaseCell cell = cells.get(0);
-            int pos = mGroupBasicAdapter.getComponents().indexOf(cell);
+            int pos = mGroupBasicAdapter.getPositionByItem(cell);
             if (pos > 0) {
                 RecyclerView recyclerView = getContentView();
                 if (recyclerView != null) {
@@ -454,7 +657,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
     @Override
     public void scrollToPosition(BaseCell cell) {
         if (cell != null) {
-            int pos = mGroupBasicAdapter.getComponents().indexOf(cell);
+            int pos = mGroupBasicAdapter.getPositionByItem(cell);
             if (pos > 0) {
                 RecyclerView recyclerView = getContentView();
                 if (recyclerView != null) {
@@ -472,7 +675,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         List<BaseCell> cells = card.getCells();
         if (cells.size() > 0) {
             BaseCell cell = cells.get(0);
-            int pos = mGroupBasicAdapter.getComponents().indexOf(cell);
+            int pos = mGroupBasicAdapter.getPositionByItem(cell);
             if (pos > 0) {
                 VirtualLayoutManager lm = getLayoutManager();
                 View view = lm.findViewByPosition(pos);
@@ -498,7 +701,7 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
     @Override
     public void topPosition(BaseCell cell) {
         if (cell != null) {
-            int pos = mGroupBasicAdapter.getComponents().indexOf(cell);
+            int pos = mGroupBasicAdapter.getPositionByItem(cell);
             if (pos > 0) {
                 VirtualLayoutManager lm = getLayoutManager();
                 View view = lm.findViewByPosition(pos);
@@ -523,9 +726,12 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      */
     @Override
     public void destroy() {
-        RecyclerView contentView = getContentView();
-        if (contentView != null) {
-            contentView.removeCallbacks(updateRunnable);
+        mRefreshScheduler.cancel();
+        cancelPendingState();
+        cancelPrewarmViews();
+        WindowedFeedSupport windowedFeedSupport = getService(WindowedFeedSupport.class);
+        if (windowedFeedSupport != null) {
+            windowedFeedSupport.destroy();
         }
         super.destroy();
     }
@@ -549,6 +755,55 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
         }
     }
 
+    /**
+     * Start a transaction. Until {@link #commit()}, insert, remove, replace and update methods only change data of
+     * cards, then all changes are applied with one calculation of ranges and layoutHelpers and notified with merged
+     * minimal updates. Cell positions passed in refer to data before the transaction, card indexes refer to cards in
+     * the transaction. Transactions can be nested, only the outermost commit applies changes.
+     * @since 3.0.0
+     */
+    public void beginTransaction() {
+        Preconditions.checkState(mGroupBasicAdapter != null, "Must call bindView() first");
+        if (mTransactionDepth++ == 0) {
+            mTransactionGroups = new ArrayList<>(mGroupBasicAdapter.getGroupsView());
+            mTransactionUpdatedCells.clear();
+            mTransactionUpdatedKeys.clear();
+        }
+    }
+
+    /**
+     * @return true if there is a transaction not committed
+     * @since 3.0.0
+     */
+    public boolean inTransaction() {
+        return mTransactionDepth > 0;
+    }
+
+    /**
+     * Apply changes in transaction started by {@link #beginTransaction()}.
+     * @since 3.0.0
+     */
+    public void commit() {
+        if (mTransactionDepth == 0 || --mTransactionDepth > 0) {
+            return;
+        }
+        List<Card> groups = mTransactionGroups;
+        Set<BaseCell> updatedCells = new HashSet<>(mTransactionUpdatedCells);
+        Map<BaseCell, Object> payloads = new HashMap<>(mTransactionUpdatedKeys.size());
+        for (Map.Entry<BaseCell, Set<String>> entry : mTransactionUpdatedKeys.entrySet()) {
+            payloads.put(entry.getKey(), new PartialUpdate(entry.getValue()));
+        }
+        mTransactionGroups = null;
+        mTransactionUpdatedCells.clear();
+        mTransactionUpdatedKeys.clear();
+        if (mGroupBasicAdapter != null) {
+            mGroupBasicAdapter.commitGroups(groups, updatedCells, payloads);
+            if (mSwipeItemTouchListener != null) {
+                mSwipeItemTouchListener.updateCurrCard();
+            }
+        }
+    }
+
     /**
      * A high performance method to insert cells. TODO handle nested card
      * @param insertPosition the position to be inserted.
@@ -573,11 +828,25 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                 insertPosition = mGroupBasicAdapter.getItemCount() - 1;
             }
             BaseCell insertCell = mGroupBasicAdapter.getItemByPosition(insertPosition);
+            if (inTransaction()) {
+                Preconditions.checkState(insertCell != null && insertCell.parent != null,
+                        "Can not insert at position %s in transaction, the cell there is not attached to a card",
+                        insertPosition);
+                Card card = insertCell.parent;
+                int index = card.getCells().indexOf(insertCell);
+                if (index >= 0) {
+                    card.addCells(card, index, list);
+                } else {
+                    card.addCells(list);
+                }
+                return;
+            }
             int cardIdx = mGroupBasicAdapter.findCardIdxFor(insertPosition);
             Card card = mGroupBasicAdapter.getCardRange(cardIdx).second;
             card.addCells(card, card.getCells().indexOf(insertCell), list);
             List<LayoutHelper> layoutHelpers = getLayoutManager().getLayoutHelpers();
-            if (layoutHelpers != null && cardIdx >= 0 && cardIdx < layoutHelpers.size()) {
+            // a card may be laid out by several layoutHelpers, locate the one by range
+            if (layoutHelpers != null && cardIdx >= 0) {
                 for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
                     LayoutHelper layoutHelper = layoutHelpers.get(i);
                     int start = layoutHelper.getRange().getLower();
@@ -612,18 +881,23 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      */
     public void insertBatchWith(int insertIdx, List<Card> groups) {
         VirtualLayoutManager layoutManager = getLayoutManager();
+        if (inTransaction()) {
+            if (groups != null) {
+                mTransactionGroups.addAll(Math.max(Math.min(insertIdx, mTransactionGroups.size()), 0), groups);
+            }
+            return;
+        }
         if (groups != null && groups.size() > 0 && mGroupBasicAdapter != null && layoutManager != null) {
             List<LayoutHelper> layoutHelpers = layoutManager.getLayoutHelpers();
             final List<LayoutHelper> newLayoutHelpers = new ArrayList<>(layoutHelpers);
             List<LayoutHelper> insertedLayoutHelpers = new ArrayList<>();
             for (int i = 0, size = groups.size(); i < size; i++) {
-                insertedLayoutHelpers.add(groups.get(i).getLayoutHelper());
-            }
-            if (insertIdx >= layoutHelpers.size()) {
-                newLayoutHelpers.addAll(insertedLayoutHelpers);
-            } else {
-                newLayoutHelpers.addAll(insertIdx, insertedLayoutHelpers);
+                insertedLayoutHelpers.addAll(getLayoutHelpersOf(groups.get(i)));
             }
+            Pair<Range<Integer>, Card> insertPair = mGroupBasicAdapter.getCardRange(insertIdx);
+            int insertPosition = insertPair != null ? insertPair.first.getLower() : mGroupBasicAdapter.getItemCount();
+            newLayoutHelpers.addAll(GroupBasicAdapter.findLayoutHelperIdx(newLayoutHelpers, insertPosition),
+                    insertedLayoutHelpers);
             layoutManager.setLayoutHelpers(newLayoutHelpers);
             mGroupBasicAdapter.insertBatchComponents(insertIdx, groups);
         }
@@ -643,8 +917,10 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     public void appendBatchWith(List<Card> groups) {
-        if (mGroupBasicAdapter != null) {
-            insertBatchWith(mGroupBasicAdapter.getGroups().size(), groups);
+        if (inTransaction()) {
+            insertBatchWith(mTransactionGroups.size(), groups);
+        } else if (mGroupBasicAdapter != null) {
+            insertBatchWith(mGroupBasicAdapter.getGroupsView().size(), groups);
         }
     }
 
@@ -668,6 +944,12 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     protected void removeBy(BaseCell data) {
+        if (inTransaction()) {
+            if (data != null && data.parent != null) {
+                data.parent.removeCellSilently(data);
+            }
+            return;
+        }
         VirtualLayoutManager layoutManager = getLayoutManager();
         if (data != null && mGroupBasicAdapter != null && layoutManager != null) {
             int removePosition = mGroupBasicAdapter.getPositionByItem(data);
@@ -677,7 +959,8 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                 card.removeCellSilently(data);
                 List<LayoutHelper> layoutHelpers = layoutManager.getLayoutHelpers();
                 LayoutHelper emptyLayoutHelper = null;
-                if (layoutHelpers != null && cardIdx >= 0 && cardIdx < layoutHelpers.size()) {
+                // a card may be laid out by several layoutHelpers, locate the one by range
+                if (layoutHelpers != null && cardIdx >= 0) {
                     for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
                         LayoutHelper layoutHelper = layoutHelpers.get(i);
                         int start = layoutHelper.getRange().getLower();
@@ -690,6 +973,8 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                                 layoutHelper.setItemCount(itemCount);
                                 layoutHelper.setRange(start, end - 1);
                             } else {
+                                // following chunks of the card count offsets of cells by item counts
+                                layoutHelper.setItemCount(0);
                                 emptyLayoutHelper = layoutHelper;
                             }
                         } else if (removePosition < start) {
@@ -713,6 +998,12 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     protected void removeBatchBy(int removeIdx) {
+        if (inTransaction()) {
+            if (removeIdx >= 0 && removeIdx < mTransactionGroups.size()) {
+                mTransactionGroups.remove(removeIdx);
+            }
+            return;
+        }
         if (mGroupBasicAdapter != null) {
             Pair<Range<Integer>, Card> cardPair = mGroupBasicAdapter.getCardRange(removeIdx);
             if (cardPair != null) {
@@ -727,31 +1018,26 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     protected void removeBatchBy(Card group) {
+        if (inTransaction()) {
+            mTransactionGroups.remove(group);
+            return;
+        }
         VirtualLayoutManager layoutManager = getLayoutManager();
         if (group != null && mGroupBasicAdapter != null && layoutManager != null) {
             int cardIdx = mGroupBasicAdapter.findCardIdxForCard(group);
             List<LayoutHelper> layoutHelpers = layoutManager.getLayoutHelpers();
-            LayoutHelper emptyLayoutHelper = null;
-            int removeItemCount = 0;
-            if (layoutHelpers != null && cardIdx >= 0 && cardIdx < layoutHelpers.size()) {
-                for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
-                    LayoutHelper layoutHelper = layoutHelpers.get(i);
-                    int start = layoutHelper.getRange().getLower();
-                    int end = layoutHelper.getRange().getUpper();
-                    if (i < cardIdx) {
-                        // do nothing
-                    } else if (i == cardIdx) {
-                        removeItemCount = layoutHelper.getItemCount();
-                        emptyLayoutHelper = layoutHelper;
-                    } else {
-                        layoutHelper.setRange(start - removeItemCount, end - removeItemCount);
-                    }
-                }
-                if (emptyLayoutHelper != null) {
-                    final List<LayoutHelper> newLayoutHelpers = new LinkedList<>(layoutHelpers);
-                    newLayoutHelpers.remove(emptyLayoutHelper);
-                    layoutManager.setLayoutHelpers(newLayoutHelpers);
+            if (layoutHelpers != null && cardIdx >= 0) {
+                Range<Integer> range = mGroupBasicAdapter.getCardRange(cardIdx).first;
+                final List<LayoutHelper> newLayoutHelpers = new ArrayList<>(layoutHelpers);
+                int[] helperRange = findLayoutHelpersOf(newLayoutHelpers, range);
+                if (helperRange == null) {
+                    // empty card, its layoutHelper can not be located by range
+                    mGroupBasicAdapter.removeGroup(group);
+                    return;
                 }
+                // ranges of following layoutHelpers are recalculated by layoutManager
+                newLayoutHelpers.subList(helperRange[0], helperRange[1]).clear();
+                layoutManager.setLayoutHelpers(newLayoutHelpers);
                 mGroupBasicAdapter.removeComponents(group);
             }
         }
@@ -764,6 +1050,12 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     public void replace(BaseCell oldOne, BaseCell newOne) {
+        if (inTransaction()) {
+            if (oldOne != null && newOne != null && oldOne.parent != null) {
+                oldOne.parent.replaceCell(oldOne, newOne);
+            }
+            return;
+        }
         VirtualLayoutManager layoutManager = getLayoutManager();
         if (oldOne != null && newOne != null && mGroupBasicAdapter != null && layoutManager != null) {
             int replacePosition = mGroupBasicAdapter.getPositionByItem(oldOne);
@@ -771,6 +1063,10 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                 int cardIdx = mGroupBasicAdapter.findCardIdxFor(replacePosition);
                 Card card = mGroupBasicAdapter.getCardRange(cardIdx).second;
                 card.replaceCell(oldOne, newOne);
+                if (oldOne.parent != null && oldOne.parent != card) {
+                    // cells of a nested card are kept by it too, its spans are looked up from its own cells
+                    oldOne.parent.replaceCellSilently(oldOne, newOne);
+                }
                 mGroupBasicAdapter.replaceComponent(Arrays.asList(oldOne), Arrays.asList(newOne));
             }
         }
@@ -783,6 +1079,12 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     public void replace(Card parent, List<BaseCell> cells) {
+        if (inTransaction()) {
+            if (parent != null && cells != null) {
+                parent.setCells(cells);
+            }
+            return;
+        }
         VirtualLayoutManager layoutManager = getLayoutManager();
         if (parent != null && cells != null && cells.size() > 0 && mGroupBasicAdapter != null && layoutManager != null) {
             Card card = parent;
@@ -791,21 +1093,28 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                 card.setCells(cells);
                 mGroupBasicAdapter.replaceComponent(oldChildren, cells);
             } else {
-                List<LayoutHelper> layoutHelpers = layoutManager.getLayoutHelpers();
+                List<LayoutHelper> layoutHelpers = new ArrayList<>(layoutManager.getLayoutHelpers());
                 int cardIdx = mGroupBasicAdapter.findCardIdxForCard(parent);
-                int diff = 0;
-                if (layoutHelpers != null && cardIdx >= 0 && cardIdx < layoutHelpers.size()) {
-                    for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+                if (cardIdx >= 0) {
+                    int[] helperRange = findLayoutHelpersOf(layoutHelpers, mGroupBasicAdapter.getCardRange(cardIdx).first);
+                    if (helperRange == null || helperRange[1] - helperRange[0] != 1) {
+                        // empty card or card laid out by chunks, recalculate the card
+                        card.setCells(cells);
+                        if (!mGroupBasicAdapter.notifyCardChanged(card)) {
+                            mGroupBasicAdapter.notifyUpdate(true);
+                        }
+                        return;
+                    }
+                    int diff = 0;
+                    for (int i = helperRange[0], size = layoutHelpers.size(); i < size; i++) {
                         LayoutHelper layoutHelper = layoutHelpers.get(i);
                         int start = layoutHelper.getRange().getLower();
                         int end = layoutHelper.getRange().getUpper();
-                        if (i < cardIdx) {
-                            // do nothing
-                        } else if (i == cardIdx) {
+                        if (i == helperRange[0]) {
                             diff = cells.size() - layoutHelper.getItemCount();
                             layoutHelper.setItemCount(cells.size());
                             layoutHelper.setRange(start, end + diff);
-                        } else {
+                        } else if (start >= 0) {
                             layoutHelper.setRange(start + diff, end + diff);
                         }
                     }
@@ -823,25 +1132,65 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
      * @since 2.1.0
      */
     public void replace(Card oldOne, Card newOne) {
+        if (inTransaction()) {
+            int index = mTransactionGroups.indexOf(oldOne);
+            if (index >= 0 && newOne != null) {
+                mTransactionGroups.set(index, newOne);
+            }
+            return;
+        }
         VirtualLayoutManager layoutManager = getLayoutManager();
         if (oldOne != null && newOne != null && mGroupBasicAdapter != null && layoutManager != null) {
             List<LayoutHelper> layoutHelpers = layoutManager.getLayoutHelpers();
             int cardIdx = mGroupBasicAdapter.findCardIdxForCard(oldOne);
-            if (layoutHelpers != null && cardIdx >= 0 && cardIdx < layoutHelpers.size()) {
-                final List<LayoutHelper> newLayoutHelpers = new LinkedList<>();
-                for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
-                    LayoutHelper layoutHelper = layoutHelpers.get(i);
-                    if (i == cardIdx) {
-                        layoutHelper = newOne.getLayoutHelper();
-                    }
-                    newLayoutHelpers.add(layoutHelper);
+            if (layoutHelpers != null && cardIdx >= 0) {
+                final List<LayoutHelper> newLayoutHelpers = new ArrayList<>(layoutHelpers);
+                int[] helperRange = findLayoutHelpersOf(newLayoutHelpers, mGroupBasicAdapter.getCardRange(cardIdx).first);
+                if (helperRange == null) {
+                    // empty card, its layoutHelper can not be located by range
+                    mGroupBasicAdapter.replaceGroup(cardIdx, Collections.singletonList(newOne));
+                    return;
                 }
+                newLayoutHelpers.subList(helperRange[0], helperRange[1]).clear();
+                newLayoutHelpers.addAll(helperRange[0], getLayoutHelpersOf(newOne));
                 layoutManager.setLayoutHelpers(newLayoutHelpers);
                 mGroupBasicAdapter.replaceComponent(oldOne, newOne);
             }
         }
     }
 
+    /**
+     * @param layoutHelpers layoutHelpers of layoutManager, should support random access
+     * @param range         range of a card, upper is exclusive
+     * @return [start, end) indexes of layoutHelpers laying out the card, null if not found
+     */
+    @Nullable
+    private int[] findLayoutHelpersOf(List<LayoutHelper> layoutHelpers, Range<Integer> range) {
+        int start = range.getLower();
+        int end = range.getUpper();
+        if (end <= start) {
+            return null;
+        }
+        int to = GroupBasicAdapter.findLayoutHelperIdx(layoutHelpers, end);
+        int from = GroupBasicAdapter.findLayoutHelperIdx(layoutHelpers, start);
+        while (from < to && layoutHelpers.get(from).getRange().getLower() < 0) {
+            from++;
+        }
+        return from < to ? new int[]{from, to} : null;
+    }
+
+    private List<LayoutHelper> getLayoutHelpersOf(Card card) {
+        if (card == null) {
+            return Collections.emptyList();
+        }
+        List<LayoutHelper> chunks = card.getChunkLayoutHelpers(mGroupBasicAdapter.getChunkSize());
+        if (chunks != null) {
+            return chunks;
+        }
+        LayoutHelper layoutHelper = card.getLayoutHelper();
+        return layoutHelper != null ? Collections.singletonList(layoutHelper) : Collections.<LayoutHelper>emptyList();
+    }
+
     /**
      * Update a view's UI by its cell's data, you should change cell's data first.
      * @param cell
@@ -856,12 +1205,69 @@ public class TangramEngine extends BaseTangramEngine<JSONObject, JSONArray, Card
                 } catch (JSONException e) {
                     e.printStackTrace();
                 }
+                cell.invalidateSize();
+                invalidateCellLayout(cell, position);
+                if (inTransaction()) {
+                    mTransactionUpdatedCells.add(cell);
+                    mTransactionUpdatedKeys.remove(cell);
+                    return;
+                }
                 mGroupBasicAdapter.notifyItemChanged(position);
             }
         }
 
     }
 
+    /**
+     * Update part of a view's UI by its cell's data of given keys, you should change cell's data first. Only
+     * {@link com.tmall.wireless.tangram.structure.CellRender} setters bound to these keys are called again, views
+     * not bound by such setters, or changes of style, fall back to a full {@link #update(BaseCell)}. In a transaction,
+     * keys of a cell are merged and notified at {@link #commit()}, unless the cell is also updated fully.
+     * @param cell
+     * @param keys keys of changed data
+     */
+    public void update(BaseCell cell, String... keys) {
+        if (keys == null || keys.length == 0) {
+            update(cell);
+            return;
+        }
+        if (cell != null && mGroupBasicAdapter != null) {
+            int position = mGroupBasicAdapter.getPositionByItem(cell);
+            if (position >= 0) {
+                try {
+                    cell.extras.put(ViewCache.Item.FLAG_INVALIDATE, true);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+                cell.invalidateSize();
+                invalidateCellLayout(cell, position);
+                if (inTransaction()) {
+                    Set<String> changedKeys = mTransactionUpdatedKeys.get(cell);
+                    if (changedKeys != null) {
+                        Collections.addAll(changedKeys, keys);
+                    } else if (mTransactionUpdatedCells.add(cell)) {
+                        mTransactionUpdatedKeys.put(cell, new HashSet<>(Arrays.asList(keys)));
+                    }
+                    return;
+                }
+                mGroupBasicAdapter.notifyItemChanged(position, new PartialUpdate(Arrays.asList(keys)));
+            }
+        }
+    }
+
+    /**
+     * Drop layout values cached for a cell updated in place by its card, and by its nested card if any.
+     */
+    private void invalidateCellLayout(BaseCell cell, int position) {
+        Pair<Range<Integer>, Card> cardRange = mGroupBasicAdapter.getCardRange(mGroupBasicAdapter.findCardIdxFor(position));
+        if (cardRange != null) {
+            cardRange.second.onCellUpdated(cell);
+        }
+        if (cell.parent != null && (cardRange == null || cell.parent != cardRange.second)) {
+            cell.parent.onCellUpdated(cell);
+        }
+    }
+
     /**
      * @since 3.0.0
      */
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import android.util.Pair;
+
+import com.alibaba.android.vlayout.Range;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of cards, their ranges and components of {@link GroupBasicAdapter} at a version. It is built by the
+ * adapter when requested after data changed, and can be read on any thread without lock.
+ *
+ * @since 3.0.0
+ */
+public final class AdapterSnapshot<L, C> {
+
+    private final int mVersion;
+
+    @NonNull
+    private final List<Pair<Range<Integer>, L>> mCards;
+
+    @NonNull
+    private final List<C> mComponents;
+
+    /**
+     * component => position, built on first lookup, racing builders produce equal maps
+     */
+    @Nullable
+    private volatile Map<C, Integer> mPositions;
+
+    private final List<L> mGroupsView = new AbstractList<L>() {
+        @Override
+        public L get(int index) {
+            return mCards.get(index).second;
+        }
+
+        @Override
+        public int size() {
+            return mCards.size();
+        }
+    };
+
+    AdapterSnapshot(int version, @NonNull List<Pair<Range<Integer>, L>> cards, @NonNull List<C> components) {
+        mVersion = version;
+        mCards = Collections.unmodifiableList(new ArrayList<>(cards));
+        mComponents = Collections.unmodifiableList(new ArrayList<>(components));
+    }
+
+    /**
+     * @return version of adapter's data, changed each time data of adapter changes
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return count of components
+     */
+    public int getItemCount() {
+        return mComponents.size();
+    }
+
+    /**
+     * @param position adapter position
+     * @return component at given position, or null if out of bounds
+     */
+    @Nullable
+    public C getComponent(int position) {
+        if (position >= 0 && position < mComponents.size()) {
+            return mComponents.get(position);
+        }
+        return null;
+    }
+
+    /**
+     * @param component component instance
+     * @return adapter position of given instance, or -1 if not found
+     */
+    public int getPosition(@Nullable C component) {
+        if (component == null) {
+            return -1;
+        }
+        Map<C, Integer> positions = mPositions;
+        if (positions == null) {
+            positions = new IdentityHashMap<>(mComponents.size());
+            for (int i = mComponents.size() - 1; i >= 0; i--) {
+                // keep the first position of duplicated instances, the same as List#indexOf
+                positions.put(mComponents.get(i), i);
+            }
+            mPositions = positions;
+        }
+        Integer position = positions.get(component);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * @return read-only list of components
+     */
+    @NonNull
+    public List<C> getComponents() {
+        return mComponents;
+    }
+
+    /**
+     * @return read-only list of cards
+     */
+    @NonNull
+    public List<L> getGroups() {
+        return mGroupsView;
+    }
+
+    /**
+     * @return count of cards
+     */
+    public int getGroupCount() {
+        return mCards.size();
+    }
+
+    /**
+     * @param index card index
+     * @return card range at given index, upper is exclusive, or null if out of bounds
+     */
+    @Nullable
+    public Pair<Range<Integer>, L> getCardRange(int index) {
+        if (index >= 0 && index < mCards.size()) {
+            return mCards.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * @param card card instance
+     * @return card index of given instance, or -1 if not found
+     */
+    public int findCardIdxForCard(@Nullable L card) {
+        if (card == null) {
+            return -1;
+        }
+        for (int i = 0, size = mCards.size(); i < size; i++) {
+            if (mCards.get(i).second == card) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param position adapter position
+     * @return card index of the card containing given position, or -1 if not found
+     */
+    public int findCardIdxFor(int position) {
+        int low = 0, high = mCards.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Range<Integer> range = mCards.get(mid).first;
+            if (range.getLower() <= position && range.getUpper() > position) {
+                return mid;
+            } else if (range.getUpper() <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import android.util.Pair;
+
+import com.alibaba.android.vlayout.LayoutHelper;
+import com.alibaba.android.vlayout.Range;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data of {@link GroupBasicAdapter} built from a list of cards: components, card ranges, item types and the
+ * difference with components at the time it is created. LayoutHelpers of cards not in the adapter yet are built with
+ * it, those of cards in the adapter are shared with layout on main thread and built when applied.
+ * <p>
+ * It is created on main thread by {@link GroupBasicAdapter#newState(List)}, which takes components of cards at that
+ * moment, prepared on any thread by
+ * {@link GroupBasicAdapter#prepareState(AdapterState)} and swapped in on main thread by
+ * {@link GroupBasicAdapter#applyState(AdapterState)}. It is immutable once prepared, and can only be applied if the
+ * adapter has not been changed since it is created.
+ *
+ * @since 3.0.0
+ */
+public final class AdapterState<L, C> {
+
+    final int generation;
+
+    @NonNull
+    final List<L> groups;
+
+    @NonNull
+    final List<C> previousComponents;
+
+    /**
+     * components of each group taken on main thread, null if the group is skipped
+     */
+    @NonNull
+    final List<List<C>> groupItems;
+
+    /**
+     * whether each group is a card of the adapter when created, its layoutHelper is shared with layout
+     */
+    @NonNull
+    final boolean[] attachedGroups;
+
+    /**
+     * version of item types when created
+     */
+    final int itemTypeVersion;
+
+    private volatile boolean mPrepared = false;
+
+    private List<C> mComponents;
+
+    private List<Pair<Range<Integer>, L>> mCards;
+
+    private List<List<LayoutHelper>> mCardHelpers;
+
+    private int[] mItemTypes;
+
+    private DiffUtil.DiffResult mDiffResult;
+
+    AdapterState(int generation, @NonNull List<L> groups, @NonNull List<C> previousComponents,
+                 @NonNull List<List<C>> groupItems, @NonNull boolean[] attachedGroups, int itemTypeVersion) {
+        this.generation = generation;
+        this.groups = groups;
+        this.previousComponents = previousComponents;
+        this.groupItems = groupItems;
+        this.attachedGroups = attachedGroups;
+        this.itemTypeVersion = itemTypeVersion;
+    }
+
+    void setPrepared(@NonNull List<C> components, @NonNull List<Pair<Range<Integer>, L>> cards,
+                     @NonNull List<List<LayoutHelper>> cardHelpers, @Nullable int[] itemTypes,
+                     @NonNull DiffUtil.DiffResult diffResult) {
+        mComponents = components;
+        mCards = cards;
+        mCardHelpers = cardHelpers;
+        mItemTypes = itemTypes;
+        mDiffResult = diffResult;
+        // written last, publishes fields above to other threads
+        mPrepared = true;
+    }
+
+    /**
+     * @return true if the state has been prepared and can be applied
+     */
+    public boolean isPrepared() {
+        return mPrepared;
+    }
+
+    /**
+     * @return generation of adapter's data when this state is created
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return cards of this state
+     */
+    @NonNull
+    public List<L> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * @return components of this state, empty if not prepared
+     */
+    @NonNull
+    public List<C> getComponents() {
+        return mPrepared ? Collections.unmodifiableList(mComponents) : Collections.<C>emptyList();
+    }
+
+    /**
+     * @return cards with their ranges of this state, empty if not prepared
+     */
+    @NonNull
+    public List<Pair<Range<Integer>, L>> getCards() {
+        return mPrepared ? Collections.unmodifiableList(mCards) : Collections.<Pair<Range<Integer>, L>>emptyList();
+    }
+
+    List<C> components() {
+        return mComponents;
+    }
+
+    List<Pair<Range<Integer>, L>> cards() {
+        return mCards;
+    }
+
+    /**
+     * @return layoutHelpers of each card in {@link #cards()}, null for cards in the adapter when created
+     */
+    List<List<LayoutHelper>> cardHelpers() {
+        return mCardHelpers;
+    }
+
+    @Nullable
+    int[] itemTypes() {
+        return mItemTypes;
+    }
+
+    DiffUtil.DiffResult diffResult() {
+        return mDiffResult;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import android.util.SparseArray;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.RecyclerView.ViewHolder;
+import com.tmall.wireless.tangram.util.LogUtils;
+
+/**
+ * RecycledViewPool resizing max recycled views of each type at runtime. A type whose views are created while its
+ * recycled views are dropped grows, as long as the total count of recycled views is under budget. A type not used
+ * for a while shrinks to its minimum, and when the budget is exceeded, recycled views of the least recently used types
+ * are destroyed first. Views are destroyed as {@link com.alibaba.android.vlayout.extend.InnerRecycledViewPool} does,
+ * by closing {@link Closeable} views.
+ */
+public class AdaptiveRecycledViewPool extends RecyclerView.RecycledViewPool {
+
+    private static final String TAG = "AdaptiveRecycledViewPool";
+
+    private static final int DEFAULT_MAX_SCRAP = 5;
+
+    private static final int DEFAULT_WINDOW = 128;
+
+    private static final int IDLE_WINDOWS_TO_SHRINK = 2;
+
+    private final SparseArray<TypeStats> mTypeStats = new SparseArray<>();
+
+    private final int mTotalBudget;
+
+    private int mTotalCount;
+
+    private int mWindowGets;
+
+    private int mWindow;
+
+    public AdaptiveRecycledViewPool(int totalBudget) {
+        this.mTotalBudget = Math.max(totalBudget, 1);
+    }
+
+    /**
+     * Set both the initial and the minimum max recycled views of a type, it never shrinks below this.
+     */
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        TypeStats stats = obtainStats(viewType);
+        stats.minScrap = Math.max(max, 0);
+        resize(stats, stats.minScrap);
+    }
+
+    /**
+     * Grow max recycled views of a type to at least count, without changing its minimum.
+     */
+    public void ensureCapacity(int viewType, int count) {
+        TypeStats stats = obtainStats(viewType);
+        if (count > stats.maxScrap) {
+            resize(stats, count);
+        }
+    }
+
+    @Override
+    public ViewHolder getRecycledView(int viewType) {
+        TypeStats stats = obtainStats(viewType);
+        ViewHolder holder = super.getRecycledView(viewType);
+        if (holder == null) {
+            stats.misses++;
+            stats.windowMisses++;
+        } else {
+            mTotalCount--;
+        }
+        stats.active++;
+        stats.peakActive = Math.max(stats.peakActive, stats.active);
+        stats.lastUsedWindow = mWindow;
+        if (++mWindowGets >= DEFAULT_WINDOW) {
+            onWindowEnd();
+        }
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(ViewHolder scrap) {
+        int viewType = scrap.getItemViewType();
+        TypeStats stats = obtainStats(viewType);
+        stats.recycled++;
+        if (stats.active > 0) {
+            stats.active--;
+        }
+        if (getRecycledViewCount(viewType) >= stats.maxScrap) {
+            if (stats.windowMisses > 0 && mTotalCount < mTotalBudget) {
+                // views of this type are created and dropped at the same time, keep one more
+                resize(stats, stats.maxScrap + 1);
+            } else {
+                stats.destroyed++;
+                destroyViewHolder(scrap);
+                return;
+            }
+        }
+        super.putRecycledView(scrap);
+        mTotalCount++;
+        if (mTotalCount > mTotalBudget) {
+            trimToBudget();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0, size = mTypeStats.size(); i < size; i++) {
+            int viewType = mTypeStats.keyAt(i);
+            ViewHolder holder;
+            while ((holder = super.getRecycledView(viewType)) != null) {
+                destroyViewHolder(holder);
+            }
+        }
+        super.clear();
+        mTotalCount = 0;
+    }
+
+    /**
+     * @return total count of recycled views in pool
+     */
+    public int size() {
+        return mTotalCount;
+    }
+
+    /**
+     * @return snapshot of statistics of all view types seen by this pool
+     */
+    @NonNull
+    public List<Stats> getStats() {
+        List<Stats> result = new ArrayList<>(mTypeStats.size());
+        for (int i = 0, size = mTypeStats.size(); i < size; i++) {
+            TypeStats stats = mTypeStats.valueAt(i);
+            result.add(new Stats(stats.viewType, stats.maxScrap, getRecycledViewCount(stats.viewType), stats.peakActive,
+                stats.misses, stats.recycled, stats.destroyed));
+        }
+        return result;
+    }
+
+    private TypeStats obtainStats(int viewType) {
+        TypeStats stats = mTypeStats.get(viewType);
+        if (stats == null) {
+            stats = new TypeStats(viewType);
+            mTypeStats.put(viewType, stats);
+            super.setMaxRecycledViews(viewType, stats.maxScrap);
+        }
+        return stats;
+    }
+
+    private void onWindowEnd() {
+        mWindowGets = 0;
+        mWindow++;
+        for (int i = 0, size = mTypeStats.size(); i < size; i++) {
+            TypeStats stats = mTypeStats.valueAt(i);
+            stats.windowMisses = 0;
+            if (mWindow - stats.lastUsedWindow >= IDLE_WINDOWS_TO_SHRINK && stats.maxScrap > stats.minScrap) {
+                // rarely used type, do not hoard its views
+                resize(stats, stats.minScrap);
+            }
+        }
+    }
+
+    private void trimToBudget() {
+        List<TypeStats> types = new ArrayList<>(mTypeStats.size());
+        for (int i = 0, size = mTypeStats.size(); i < size; i++) {
+            types.add(mTypeStats.valueAt(i));
+        }
+        Collections.sort(types, LEAST_RECENTLY_USED);
+        for (int i = 0, size = types.size(); i < size && mTotalCount > mTotalBudget; i++) {
+            TypeStats stats = types.get(i);
+            int count = getRecycledViewCount(stats.viewType);
+            int trimmed = Math.min(count - stats.minScrap, mTotalCount - mTotalBudget);
+            if (trimmed > 0) {
+                resize(stats, count - trimmed);
+            }
+        }
+    }
+
+    private void resize(TypeStats stats, int maxScrap) {
+        int count = getRecycledViewCount(stats.viewType);
+        while (count > maxScrap) {
+            ViewHolder holder = super.getRecycledView(stats.viewType);
+            if (holder == null) {
+                break;
+            }
+            destroyViewHolder(holder);
+            stats.destroyed++;
+            mTotalCount--;
+            count--;
+        }
+        stats.maxScrap = maxScrap;
+        super.setMaxRecycledViews(stats.viewType, maxScrap);
+    }
+
+    private static void destroyViewHolder(ViewHolder holder) {
+        if (holder.itemView instanceof Closeable) {
+            try {
+                ((Closeable) holder.itemView).close();
+            } catch (IOException e) {
+                LogUtils.e(TAG, "close view failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final Comparator<TypeStats> LEAST_RECENTLY_USED = new Comparator<TypeStats>() {
+        @Override
+        public int compare(TypeStats lhs, TypeStats rhs) {
+            return lhs.lastUsedWindow - rhs.lastUsedWindow;
+        }
+    };
+
+    private static final class TypeStats {
+
+        final int viewType;
+
+        int maxScrap = DEFAULT_MAX_SCRAP;
+
+        int minScrap = 1;
+
+        // views taken from pool or created, and not recycled yet
+        int active;
+
+        int peakActive;
+
+        int misses;
+
+        int windowMisses;
+
+        int recycled;
+
+        int destroyed;
+
+        int lastUsedWindow;
+
+        TypeStats(int viewType) {
+            this.viewType = viewType;
+        }
+    }
+
+    /**
+     * Statistics of a view type. Created views are counted by misses of pool, which is close to but may be more than
+     * the actual count when prefetch gives up creating.
+     */
+    public static final class Stats {
+
+        public final int viewType;
+
+        public final int maxRecycledViews;
+
+        public final int recycledViewCount;
+
+        /**
+         * peak count of views out of pool at the same time
+         */
+        public final int peakActive;
+
+        public final int created;
+
+        public final int recycled;
+
+        public final int destroyed;
+
+        Stats(int viewType, int maxRecycledViews, int recycledViewCount, int peakActive, int created, int recycled,
+            int destroyed) {
+            this.viewType = viewType;
+            this.maxRecycledViews = maxRecycledViews;
+            this.recycledViewCount = recycledViewCount;
+            this.peakActive = peakActive;
+            this.created = created;
+            this.recycled = recycled;
+            this.destroyed = destroyed;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{viewType=" + viewType + ", max=" + maxRecycledViews + ", count=" + recycledViewCount
+                + ", peakActive=" + peakActive + ", created=" + created + ", recycled=" + recycled
+                + ", destroyed=" + destroyed + '}';
+        }
+    }
+}
@@ -24,12 +24,15 @@
 
 package com.tmall.wireless.tangram.core.adapter;
 
+import java.util.Set;
+
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.View;
 
 import com.alibaba.android.vlayout.VirtualLayoutManager;
 import com.tmall.wireless.tangram.core.protocol.ControlBinder;
+import com.tmall.wireless.tangram.core.protocol.ViewRemounter;
 
 /**
  * Created by villadora on 15/8/19.
@@ -42,6 +45,10 @@ public class BinderViewHolder<C, V extends View> extends RecyclerView.ViewHolder
 
     public C data;
 
+    private boolean mMounted;
+
+    private int mMountedVersion;
+
     public BinderViewHolder(V itemView, @NonNull ControlBinder<C, V> binder) {
         super(itemView);
         this.itemView = itemView;
@@ -55,19 +62,50 @@ public class BinderViewHolder<C, V extends View> extends RecyclerView.ViewHolder
      * @param data
      */
     public void bind(C data) {
+        if (isMountedWith(data)) {
+            if (controller instanceof ViewRemounter) {
+                ((ViewRemounter<C, V>) controller).remountView(data, itemView);
+            }
+            return;
+        }
         this.controller.mountView(data, itemView);
         this.data = data;
+        if (data instanceof VersionedItem) {
+            mMounted = true;
+            mMountedVersion = ((VersionedItem) data).getContentVersion();
+        }
+    }
+
+    /**
+     * Bind data to inner view, only part of data of given keys changed since last bind
+     *
+     * @param data
+     * @param changedKeys keys of changed data
+     */
+    public void bind(C data, @NonNull Set<String> changedKeys) {
+        if (mMounted && data == this.data && controller instanceof ViewRemounter
+            && ((ViewRemounter<C, V>) controller).remountView(data, itemView, changedKeys)) {
+            mMountedVersion = ((VersionedItem) data).getContentVersion();
+            return;
+        }
+        bind(data);
     }
 
     /**
      * unbind the data, make the view re-usable
      */
     public void unbind() {
+        mMounted = false;
         if (data != null) {
             this.controller.unmountView(data, itemView);
         }
     }
 
+    private boolean isMountedWith(C data) {
+        return mMounted && data == this.data && data instanceof VersionedItem
+            && ((VersionedItem) data).getContentVersion() == mMountedVersion;
+    }
+
     @Override
     public boolean needCached() {
         if (data instanceof CacheItem) {
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Changes versions of items notified as changed by position, without a {@link PartialUpdate}, since they may have
+ * been edited in place. Holders mount them again instead of skipping the bind.
+ * <p>
+ * A full {@link RecyclerView.Adapter#notifyDataSetChanged()} does not change any version, so refreshing a page does
+ * not mount unchanged items again. Items edited in place must be notified by position, such as by
+ * {@link com.tmall.wireless.tangram.TangramEngine#update(com.tmall.wireless.tangram.structure.BaseCell)}.
+ */
+final class ContentVersionObserver extends RecyclerView.AdapterDataObserver {
+
+    @NonNull
+    private final List<?> mItems;
+
+    ContentVersionObserver(@NonNull List<?> items) {
+        this.mItems = items;
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        invalidateContentVersions(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+        if (!(payload instanceof PartialUpdate)) {
+            invalidateContentVersions(positionStart, itemCount);
+        }
+    }
+
+    private void invalidateContentVersions(int positionStart, int itemCount) {
+        int end = Math.min(positionStart + itemCount, mItems.size());
+        for (int i = Math.max(positionStart, 0); i < end; i++) {
+            Object item = mItems.get(i);
+            if (item instanceof VersionedItem) {
+                ((VersionedItem) item).invalidateContentVersion();
+            }
+        }
+    }
+}
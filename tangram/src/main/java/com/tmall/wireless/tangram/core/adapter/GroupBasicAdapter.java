@@ -25,8 +25,14 @@
 package com.tmall.wireless.tangram.core.adapter;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import android.util.Pair;
 import android.util.SparseArray;
@@ -47,12 +53,17 @@ import com.tmall.wireless.tangram.dataparser.concrete.Card;
 import com.tmall.wireless.tangram.support.InternalErrorSupport;
 import com.tmall.wireless.tangram.util.Preconditions;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by villadora on 15/8/19.
@@ -72,7 +83,67 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
     protected ArrayList<Pair<Range<Integer>, L>> mCards = new ArrayList<>();
 
     @NonNull
-    protected List<C> mData = new LinkedList<>();
+    protected List<C> mData = new ArrayList<>();
+
+    /**
+     * read-only live views of cards and cells, never copied
+     */
+    private final List<L> mGroupsView = new AbstractList<L>() {
+        @Override
+        public L get(int index) {
+            return mCards.get(index).second;
+        }
+
+        @Override
+        public int size() {
+            return mCards.size();
+        }
+    };
+
+    private final List<C> mComponentsView = Collections.unmodifiableList(mData);
+
+    /**
+     * card => index in {@link #mCards}, validated on lookup and rebuilt if stale
+     */
+    private final Map<Object, Integer> mCardIndexMap = new IdentityHashMap<>();
+
+    /**
+     * {@link #mDataVersion} {@link #mCardIndexMap} is built at, cards missing from the map are not cards of this
+     * adapter until data changes
+     */
+    private int mCardIndexVersion = -1;
+
+    /**
+     * increased whenever components, ranges or layoutHelpers are changed, used to check whether an
+     * {@link AdapterState} is stale and as version of {@link AdapterSnapshot}
+     */
+    private volatile int mDataVersion = 0;
+
+    /**
+     * increased whenever item types are invalidated, used to check whether item types prepared by a state are stale
+     */
+    private int mItemTypeVersion = 0;
+
+    @NonNull
+    private volatile AdapterSnapshot<L, C> mSnapshot = new AdapterSnapshot<>(0, Collections.<Pair<Range<Integer>, L>>emptyList(),
+            Collections.<C>emptyList());
+
+    private final AtomicBoolean mSnapshotPending = new AtomicBoolean();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * cards with more items are laid out by chunks of about this size, 0 to disable
+     */
+    private int mChunkSize = 0;
+
+    private final Runnable mPublishSnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSnapshotPending.set(false);
+            publishSnapshot();
+        }
+    };
 
     private ControlBinderResolver<? extends ControlBinder<C, ? extends View>> mCompBinderResolver;
 
@@ -91,6 +162,7 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
 
         mCompBinderResolver = Preconditions.checkNotNull(cellBinderResolver, "componentBinderResolver should not be null");
         mCardBinderResolver = Preconditions.checkNotNull(cardBinderResolver, "layoutBinderResolver should not be null");
+        registerAdapterDataObserver(new ContentVersionObserver(mData));
     }
 
     public void setPerformanceMonitor(
@@ -108,7 +180,7 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
 
     private void createSnapshot() {
         oldMap.clear();
-        List<L> groups = getGroups();
+        List<L> groups = getGroupsView();
         for (int i = 0, size = groups.size(); i < size; i++) {
             L group = groups.get(i);
             oldMap.put(System.identityHashCode(group), group);
@@ -120,7 +192,7 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
         pendingDeleteMap.clear();
         newMap.clear();
 
-        List<L> groups = getGroups();
+        List<L> groups = getGroupsView();
         for (int i = 0, size = groups.size(); i < size; i++) {
             L group = groups.get(i);
             newMap.put(System.identityHashCode(group), group);
@@ -157,6 +229,14 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      * @param silence true, call {@link RecyclerView.Adapter#notifyDataSetChanged()}; false do not call{@link RecyclerView.Adapter#notifyDataSetChanged()}
      */
     public void setData(@Nullable List<L> cards, boolean silence) {
+        invalidateItemTypes();
+        rebuild(cards);
+
+        if (!silence)
+            notifyDataSetChanged();
+    }
+
+    private void rebuild(@Nullable List<L> cards) {
         createSnapshot();
 
         mCards.clear();
@@ -171,9 +251,241 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
         }
 
         diffWithSnapshot();
+    }
+
+    /**
+     * Replace all cards with ranges and layoutHelpers recalculated in one pass, then notify only the differences
+     * between old and new components instead of {@link RecyclerView.Adapter#notifyDataSetChanged()}. Adjacent removal
+     * and insertion at the same position are merged into a change.
+     *
+     * @param cards   new cards data, should not be a view of this adapter
+     * @param changed components whose content changed, they are notified as changed even not moved
+     */
+    public void commitGroups(@NonNull List<L> cards, @NonNull Collection<C> changed) {
+        commitGroups(cards, changed, Collections.<C, Object>emptyMap());
+    }
+
+    /**
+     * Same as {@link #commitGroups(List, Collection)}, with payloads of changed components.
+     *
+     * @param payloads payloads dispatched with change notifications, keyed by changed components
+     */
+    public void commitGroups(@NonNull List<L> cards, @NonNull Collection<C> changed,
+            @NonNull Map<C, ?> payloads) {
+        final List<C> oldData = new ArrayList<>(mData);
+
+        rebuild(cards);
+
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                new IdentityDiffCallback<>(oldData, mData, changed, payloads), false);
+        MergingUpdateCallback callback = new MergingUpdateCallback(new AdapterListUpdateCallback(this));
+        result.dispatchUpdatesTo(callback);
+        callback.flush();
+    }
+
+    /**
+     * Create a state of new cards to be prepared by {@link #prepareState(AdapterState)}. Components of cards and of
+     * the adapter at this moment are recorded, so that cards modified on main thread are not read while preparing.
+     *
+     * @param cards new cards data
+     * @return a state not prepared
+     */
+    @MainThread
+    @NonNull
+    public AdapterState<L, C> newState(@Nullable List<L> cards) {
+        List<L> groups = cards != null ? new ArrayList<>(cards) : Collections.<L>emptyList();
+        List<List<C>> groupItems = new ArrayList<>(groups.size());
+        boolean[] attachedGroups = new boolean[groups.size()];
+        for (int i = 0, size = groups.size(); i < size; i++) {
+            L card = groups.get(i);
+            groupItems.add(card != null ? getItemsForState(card, groups) : null);
+            attachedGroups[i] = card != null && findCardIdx(card) >= 0;
+        }
+        return new AdapterState<>(mDataVersion, groups, new ArrayList<>(mData), groupItems, attachedGroups,
+                mItemTypeVersion);
+    }
+
+    /**
+     * Calculate components, ranges, item types and the difference with previous components of a state, and build
+     * layoutHelpers of cards not in the adapter. Only components recorded in state and cards not shown yet are read,
+     * so it can be called on a worker thread. LayoutHelpers of cards in the adapter are shared with layout on main
+     * thread, they are resolved by {@link #applyState(AdapterState)}.
+     *
+     * @param state state created by {@link #newState(List)}
+     */
+    @WorkerThread
+    public void prepareState(@NonNull AdapterState<L, C> state) {
+        if (state.isPrepared()) {
+            return;
+        }
+        int groupCount = state.groups.size();
+        List<C> data = new ArrayList<>();
+        List<Pair<Range<Integer>, L>> rangeCards = new ArrayList<>(groupCount);
+        List<List<LayoutHelper>> cardHelpers = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            L card = state.groups.get(i);
+            List<C> items = state.groupItems.get(i);
+            if (card == null || items == null) {
+                // skip card null
+                continue;
+            }
+            int offset = data.size();
+            data.addAll(items);
+            rangeCards.add(Pair.create(Range.create(offset, data.size()), card));
+
+            List<LayoutHelper> helpers = null;
+            if (!state.attachedGroups[i]) {
+                helpers = new ArrayList<>(1);
+                addCardHelpers(card, items.size(), helpers);
+            }
+            cardHelpers.add(helpers);
+        }
+        int[] itemTypes = prepareItemTypes(data);
+
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                new IdentityDiffCallback<>(state.previousComponents, data, Collections.<C>emptyList(),
+                        Collections.<C, Object>emptyMap()), false);
+        state.setPrepared(data, rangeCards, cardHelpers, itemTypes, result);
+    }
+
+    /**
+     * Swap in a prepared state and notify the difference like {@link #setData(List)}, only resolving layoutHelpers of
+     * cards already in the adapter, the copy of references and notifications are done on main thread.
+     *
+     * @param state prepared state
+     * @return false if data of adapter has been changed since the state is created, it should be created again
+     */
+    @MainThread
+    public boolean applyState(@NonNull AdapterState<L, C> state) {
+        Preconditions.checkState(state.isPrepared(), "state should be prepared before applied");
+        if (state.generation != mDataVersion) {
+            return false;
+        }
+
+        List<Pair<Range<Integer>, L>> rangeCards = state.cards();
+        List<List<LayoutHelper>> cardHelpers = state.cardHelpers();
+        List<LayoutHelper> helpers = new ArrayList<>(rangeCards.size());
+        for (int i = 0, size = rangeCards.size(); i < size; i++) {
+            List<LayoutHelper> prepared = cardHelpers.get(i);
+            if (prepared != null) {
+                helpers.addAll(prepared);
+            } else {
+                Pair<Range<Integer>, L> rangeCard = rangeCards.get(i);
+                addCardHelpers(rangeCard.second, rangeCard.first.getUpper() - rangeCard.first.getLower(), helpers);
+            }
+        }
+
+        // templates may have been loaded while preparing
+        boolean itemTypesValid = state.itemTypeVersion == mItemTypeVersion;
+        invalidateItemTypes();
+
+        createSnapshot();
+
+        mCards.clear();
+        mCards.addAll(rangeCards);
+        mData.clear();
+        mData.addAll(state.components());
+        int[] itemTypes = state.itemTypes();
+        if (itemTypesValid && itemTypes != null) {
+            applyItemTypes(mData, itemTypes);
+        }
+        setLayoutHelpers(helpers);
+
+        onStateApplied(state);
+
+        diffWithSnapshot();
+
+        MergingUpdateCallback callback = new MergingUpdateCallback(new AdapterListUpdateCallback(this));
+        state.diffResult().dispatchUpdatesTo(callback);
+        callback.flush();
+        return true;
+    }
+
+    /**
+     * Called after a state is swapped in by {@link #applyState(AdapterState)}, before notified.
+     *
+     * @param state the state applied
+     */
+    protected void onStateApplied(@NonNull AdapterState<L, C> state) {
+
+    }
+
+    @Override
+    public void setLayoutHelpers(@NonNull List<LayoutHelper> helpers) {
+        super.setLayoutHelpers(helpers);
+        onDataChanged();
+    }
+
+    /**
+     * Must be called after components or ranges are changed without {@link #setLayoutHelpers(List)}. No
+     * {@link AdapterSnapshot} is built until requested by {@link #getSnapshot()}.
+     */
+    protected void onDataChanged() {
+        mDataVersion++;
+    }
+
+    /**
+     * @return version of data, changed each time components, ranges or layoutHelpers change
+     */
+    @MainThread
+    public int getDataVersion() {
+        return mDataVersion;
+    }
+
+    /**
+     * Get an immutable snapshot of cards and components, it can be read on any thread without lock. Snapshots are built
+     * lazily by the first request after data changed. On main thread it is always up to date; on other threads it is
+     * the latest one published, and a stale one makes a new snapshot published in the next main loop message, compare
+     * {@link AdapterSnapshot#getVersion()} to know whether data changed.
+     *
+     * @return the latest snapshot
+     */
+    @NonNull
+    public AdapterSnapshot<L, C> getSnapshot() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            publishSnapshot();
+        } else if (mSnapshot.getVersion() != mDataVersion && mSnapshotPending.compareAndSet(false, true)) {
+            mMainHandler.post(mPublishSnapshotRunnable);
+        }
+        return mSnapshot;
+    }
+
+    @MainThread
+    private void publishSnapshot() {
+        if (mSnapshot.getVersion() != mDataVersion) {
+            mSnapshot = new AdapterSnapshot<>(mDataVersion, mCards, mData);
+        }
+    }
+
+    /**
+     * Invalidate item types cached in components, called when templates of components may have changed.
+     */
+    public void invalidateItemTypes() {
+        mItemTypeVersion++;
+    }
+
+    /**
+     * Resolve item types of components when preparing a state, without caching them in components which may be bound
+     * on main thread.
+     *
+     * @param components components of the state
+     * @return item types of components, null if not supported
+     */
+    @WorkerThread
+    @Nullable
+    protected int[] prepareItemTypes(@NonNull List<C> components) {
+        return null;
+    }
+
+    /**
+     * Cache item types resolved by {@link #prepareItemTypes(List)} in components when a state is applied.
+     *
+     * @param components components of the state
+     * @param itemTypes  item types of components
+     */
+    @MainThread
+    protected void applyItemTypes(@NonNull List<C> components, @NonNull int[] itemTypes) {
 
-        if (!silence)
-            notifyDataSetChanged();
     }
 
     /**
@@ -226,6 +538,35 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
         return mData.indexOf(c);
     }
 
+    /**
+     * Find position of component in range of its card, only scan the whole data if the card is not found.
+     *
+     * @param c    component
+     * @param card card containing the component
+     */
+    public int getPositionByItem(C c, @Nullable L card) {
+        int cardIdx = findCardIdx(card);
+        if (cardIdx < 0) {
+            return getPositionByItem(c);
+        }
+        Range<Integer> range = mCards.get(cardIdx).first;
+        for (int i = range.getLower(), end = Math.min(range.getUpper(), mData.size()); i < end; i++) {
+            if (mData.get(i) == c) {
+                return i;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * @param stableId stable id of component
+     * @return position of the component, {@link RecyclerView#NO_POSITION} if not found or stable ids are not
+     * supported
+     */
+    public int getPositionByStableId(long stableId) {
+        return RecyclerView.NO_POSITION;
+    }
+
     /**
      * Transform cards to layoutHelpers with correct range and add cells in cards into data
      *
@@ -240,15 +581,35 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
             return new LinkedList<>();
         }
 
+        return collectCards(cards, data, rangeCards);
+    }
+
+    /**
+     * Get correspond items for card when creating a state, the list is read while preparing the state on a worker
+     * thread, so it must not be modified by the card
+     *
+     * @param card  the card look items for
+     * @param cards all cards of the state
+     * @return cells of this card
+     */
+    @Nullable
+    protected List<C> getItemsForState(@NonNull L card, @NonNull List<L> cards) {
+        return getItems(card);
+    }
 
+    /**
+     * Collect items and ranges of cards and create their layoutHelpers.
+     */
+    @NonNull
+    private List<LayoutHelper> collectCards(@NonNull List<L> cards, final @NonNull List<C> data,
+                                            @NonNull List<Pair<Range<Integer>, L>> rangeCards) {
         int lastPos = data.size();
-        List<LayoutHelper> helpers = new ArrayList<>(cards.size());
+        int firstCard = rangeCards.size();
         for (int i = 0, size = cards.size(); i < size; i++) {
             L card = cards.get(i);
 
             if (card == null) continue;
 
-            final String ctype = getCardStringType(card);
             List<C> items = getItems(card);
             if (items == null) {
                 // skip card null
@@ -262,21 +623,83 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
             lastPos += items.size();
             // include [x, x) for empty range, upper are not included in range
             rangeCards.add(Pair.create(Range.create(offset, lastPos), card));
+        }
 
-            // get layoutHelper for this card
-            LayoutBinder<L> binder = mCardBinderResolver.create(ctype);
-            LayoutHelper helper = binder.getHelper(ctype, card);
-
+        return createLayoutHelpers(rangeCards, firstCard);
+    }
 
-            if (helper != null) {
-                helper.setItemCount(items.size());
-                helpers.add(helper);
-            }
+    /**
+     * Get layoutHelpers of cards and set their item counts, layoutHelpers are kept by cards and used by layout, so it
+     * must be called on main thread.
+     *
+     * @param rangeCards cards with their ranges
+     * @param from       index of the first card to create layoutHelpers for
+     */
+    @MainThread
+    @NonNull
+    private List<LayoutHelper> createLayoutHelpers(@NonNull List<Pair<Range<Integer>, L>> rangeCards, int from) {
+        List<LayoutHelper> helpers = new ArrayList<>(rangeCards.size() - from);
+        for (int i = from, size = rangeCards.size(); i < size; i++) {
+            Pair<Range<Integer>, L> rangeCard = rangeCards.get(i);
+            addCardHelpers(rangeCard.second, rangeCard.first.getUpper() - rangeCard.first.getLower(), helpers);
         }
 
         return helpers;
     }
 
+    /**
+     * Get layoutHelpers of a card and set their item counts. Only cards not in the adapter can be resolved on a worker
+     * thread, since layoutHelpers of cards in the adapter are used by layout.
+     *
+     * @param card      the card
+     * @param itemCount count of items of the card
+     * @param helpers   list layoutHelpers are added to
+     */
+    private void addCardHelpers(@NonNull L card, int itemCount, @NonNull List<LayoutHelper> helpers) {
+        // huge cards are laid out by chunks
+        List<LayoutHelper> chunks = getChunkHelpers(card, itemCount);
+        if (chunks != null) {
+            helpers.addAll(chunks);
+            return;
+        }
+
+        // get layoutHelper for this card
+        final String ctype = getCardStringType(card);
+        LayoutBinder<L> binder = mCardBinderResolver.create(ctype);
+        LayoutHelper helper = binder.getHelper(ctype, card);
+
+        if (helper != null) {
+            helper.setItemCount(itemCount);
+            helpers.add(helper);
+        }
+    }
+
+    /**
+     * Lay out cards having more than chunkSize items by several layoutHelpers, each covers a chunk of items, so that
+     * layout and refresh of huge cards cost O(chunk). Takes effect when data is set next time.
+     *
+     * @param chunkSize max count of items in a chunk, 0 to disable
+     */
+    public void setChunkSize(int chunkSize) {
+        mChunkSize = Math.max(0, chunkSize);
+    }
+
+    public int getChunkSize() {
+        return mChunkSize;
+    }
+
+    /**
+     * Get layoutHelpers of a card split into chunks, item counts of chunks must sum up to itemCount.
+     *
+     * @param card      the card
+     * @param itemCount count of items of the card
+     * @return layoutHelpers of chunks, or null if the card is laid out by one layoutHelper
+     */
+    @Nullable
+    protected List<LayoutHelper> getChunkHelpers(@NonNull L card, int itemCount) {
+        return null;
+    }
+
 
     @Override
     public BinderViewHolder<C, ? extends View> onCreateViewHolder(ViewGroup parent, int viewType) {
@@ -320,6 +743,23 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
     }
 
 
+    @Override
+    public void onBindViewHolder(BinderViewHolder<C, ? extends View> holder, int position, List<Object> payloads) {
+        Set<String> changedKeys = PartialUpdate.mergeKeys(payloads);
+        if (changedKeys == null) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        C data = mData.get(position);
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.recordStart(PHASE_BIND, holder.itemView);
+        }
+        holder.bind(data, changedKeys);
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.recordEnd(PHASE_BIND, holder.itemView);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -339,6 +779,8 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      * should be called when page destroy by user
      */
     public void destroy() {
+        mMainHandler.removeCallbacks(mPublishSnapshotRunnable);
+        mSnapshotPending.set(false);
     }
 
     /**
@@ -360,7 +802,7 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
     public Range<Integer> getCardRange(Card card) {
         if (card == null) return Range.create(0, 1);
 
-        int idx = getGroups().indexOf(card);
+        int idx = findCardIdx(card);
         if (idx >= 0) {
             return mCards.get(idx).first;
         } else {
@@ -373,12 +815,34 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      * @return card index of given instance
      */
     public int findCardIdxForCard(L card) {
+        return findCardIdx(card);
+    }
+
+    private int findCardIdx(Object card) {
+        if (card == null) {
+            return -1;
+        }
+        Integer idx = mCardIndexMap.get(card);
+        if (idx != null && idx < mCards.size() && mCards.get(idx).second == card) {
+            return idx;
+        }
+        int version = mDataVersion;
+        if (idx == null && mCardIndexVersion == version) {
+            // such as a nested card, do not rebuild until cards change
+            return -1;
+        }
+        // cards changed, rebuild map
+        mCardIndexVersion = version;
+        mCardIndexMap.clear();
+        int found = -1;
         for (int i = 0, size = mCards.size(); i < size; i++) {
-            if (mCards.get(i).second == card) {
-                return i;
+            L c = mCards.get(i).second;
+            mCardIndexMap.put(c, i);
+            if (c == card) {
+                found = i;
             }
         }
-        return -1;
+        return found;
     }
 
     /**
@@ -410,7 +874,7 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      * @return the card index of given cell object
      */
     public int findCardIdxFor(C cell) {
-        int position = mData.indexOf(cell);
+        int position = getPositionByItem(cell);
         return findCardIdxFor(position);
     }
 
@@ -438,6 +902,12 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      */
     public abstract Card getCardById(String id);
 
+    /**
+     * @param id id of component
+     * @return the first component with given id, or null if not found
+     */
+    public abstract C findComponentById(String id);
+
     /**
      * @param type cell's type
      * @return last appearance position
@@ -504,6 +974,143 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
         }
     }
 
+    /**
+     * Update data and layout of one card only. Its range and layoutHelper are recalculated, ranges of following cards
+     * are shifted, and only changed items are notified.
+     *
+     * @param card the card whose items changed
+     * @return false if the card can not be updated alone, {@link #notifyUpdate(boolean)} should be used instead
+     */
+    public boolean notifyCardChanged(@NonNull L card) {
+        int cardIdx = findCardIdxForCard(card);
+        if (cardIdx < 0 || !canUpdateAlone(card)) {
+            return false;
+        }
+
+        List<C> items = getItems(card);
+        if (items == null) {
+            // card should be removed
+            return false;
+        }
+
+        Range<Integer> range = mCards.get(cardIdx).first;
+        final int start = range.getLower();
+        final int oldCount = range.getUpper() - start;
+        final int newCount = items.size();
+
+        List<LayoutHelper> helpers = new ArrayList<>(getLayoutHelpers());
+        int toIdx = findLayoutHelperIdx(helpers, start + oldCount);
+        int fromIdx = findLayoutHelperIdx(helpers, start);
+        while (fromIdx < toIdx && helpers.get(fromIdx).getRange().getLower() < 0) {
+            // skip empty layoutHelpers of previous cards
+            fromIdx++;
+        }
+        if (oldCount == 0 || fromIdx == toIdx) {
+            // empty card or card without layoutHelper, can not locate its layoutHelpers by range
+            return false;
+        }
+
+        List<LayoutHelper> newHelpers = getChunkHelpers(card, newCount);
+        if (newHelpers == null) {
+            final String ctype = getCardStringType(card);
+            LayoutHelper helper = mCardBinderResolver.create(ctype).getHelper(ctype, card);
+            if (helper == null) {
+                return false;
+            }
+            helper.setItemCount(newCount);
+            newHelpers = Collections.singletonList(helper);
+        }
+        helpers.subList(fromIdx, toIdx).clear();
+        helpers.addAll(fromIdx, newHelpers);
+
+        List<C> oldItems = new ArrayList<>(mData.subList(start, start + oldCount));
+
+        // items at head and tail not replaced are kept in place and not notified, such as appending a page to card,
+        // items edited in place should be notified by position
+        int head = 0;
+        int maxSame = Math.min(oldCount, newCount);
+        while (head < maxSame && oldItems.get(head) == items.get(head)) {
+            head++;
+        }
+        int tail = 0;
+        maxSame -= head;
+        while (tail < maxSame && oldItems.get(oldCount - 1 - tail) == items.get(newCount - 1 - tail)) {
+            tail++;
+        }
+
+        mData.subList(start, start + oldCount).clear();
+        mData.addAll(start, items);
+
+        final int diff = newCount - oldCount;
+        mCards.set(cardIdx, Pair.create(Range.create(start, start + newCount), card));
+        if (diff != 0) {
+            for (int i = cardIdx + 1, size = mCards.size(); i < size; i++) {
+                Pair<Range<Integer>, L> pair = mCards.get(i);
+                mCards.set(i, Pair.create(Range.create(pair.first.getLower() + diff, pair.first.getUpper() + diff), pair.second));
+            }
+        }
+
+        setLayoutHelpers(helpers);
+
+        onComponentsReplaced(oldItems, items);
+
+        int changedOld = oldCount - head - tail;
+        int changedNew = newCount - head - tail;
+        int changed = Math.min(changedOld, changedNew);
+        if (changedNew > changedOld) {
+            notifyItemRangeInserted(start + head + changed, changedNew - changedOld);
+        } else if (changedOld > changedNew) {
+            notifyItemRangeRemoved(start + head + changed, changedOld - changedNew);
+        }
+        if (changed > 0) {
+            notifyItemRangeChanged(start + head, changed);
+        }
+        return true;
+    }
+
+    /**
+     * @param card the card to update
+     * @return false if the card's items depend on other cards or other cards depend on it
+     */
+    protected boolean canUpdateAlone(@NonNull L card) {
+        return true;
+    }
+
+    /**
+     * Called after items of a card replaced by {@link #notifyCardChanged}.
+     *
+     * @param removed old items
+     * @param added   new items
+     */
+    protected void onComponentsReplaced(@NonNull List<C> removed, @NonNull List<C> added) {
+
+    }
+
+    /**
+     * Binary search layoutHelpers by range, a card may be laid out by zero, one or several layoutHelpers. Empty
+     * layoutHelpers, whose ranges are [-1, -1], are skipped.
+     *
+     * @param helpers  layoutHelpers in layoutManager, in order of ranges, should support random access
+     * @param position adapter position
+     * @return index after the last non-empty layoutHelper starting before position
+     */
+    public static int findLayoutHelperIdx(@NonNull List<LayoutHelper> helpers, int position) {
+        int low = 0, high = helpers.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int probe = mid;
+            while (probe < high && helpers.get(probe).getRange().getLower() < 0) {
+                probe++;
+            }
+            if (probe < high && helpers.get(probe).getRange().getLower() < position) {
+                low = probe + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Refresh inner data structure without notifyDataSetChange, must be followed with a notifyDataSetChanged or other notify methods
      */
@@ -636,6 +1243,22 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
      */
     abstract public void replaceComponent(L oldGroup, L newGroup);
 
+    /**
+     * @return read-only live view of cards, do not keep it across changes of data, use {@link #getGroups()} if a copy
+     * is needed
+     */
+    public List<L> getGroupsView() {
+        return mGroupsView;
+    }
+
+    /**
+     * @return read-only live view of cells, do not keep it across changes of data, use {@link #getComponents()} if a
+     * copy is needed
+     */
+    public List<C> getComponentsView() {
+        return mComponentsView;
+    }
+
     /**
      * @return total card list
      */
@@ -660,4 +1283,52 @@ public abstract class GroupBasicAdapter<L, C> extends VirtualLayoutAdapter<Binde
 
     }
 
+    /**
+     * Components are the same only if they are the same instance.
+     */
+    private static class IdentityDiffCallback<C> extends DiffUtil.Callback {
+
+        private final List<C> mOldData;
+
+        private final List<C> mNewData;
+
+        private final Collection<C> mChanged;
+
+        private final Map<C, ?> mPayloads;
+
+        IdentityDiffCallback(@NonNull List<C> oldData, @NonNull List<C> newData, @NonNull Collection<C> changed,
+                @NonNull Map<C, ?> payloads) {
+            mOldData = oldData;
+            mNewData = newData;
+            mChanged = changed;
+            mPayloads = payloads;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldData.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewData.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldData.get(oldItemPosition) == mNewData.get(newItemPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mChanged.isEmpty() || !mChanged.contains(mNewData.get(newItemPosition));
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return mPayloads.isEmpty() ? null : mPayloads.get(mNewData.get(newItemPosition));
+        }
+    }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * Forward updates to another callback, usually one notifying adapter, a removal followed by an insertion at the same position is merged into a change, so
+ * that replaced items are rebound in place instead of animated out and in. Call {@link #flush()} after dispatching.
+ */
+class MergingUpdateCallback implements ListUpdateCallback {
+
+    private final ListUpdateCallback mTarget;
+
+    private int mRemovedPosition = -1;
+
+    private int mRemovedCount;
+
+    MergingUpdateCallback(@NonNull ListUpdateCallback target) {
+        this.mTarget = target;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (mRemovedPosition == position) {
+            int changed = Math.min(count, mRemovedCount);
+            mTarget.onChanged(position, changed, null);
+            if (mRemovedCount > changed) {
+                mTarget.onRemoved(position + changed, mRemovedCount - changed);
+            } else if (count > changed) {
+                mTarget.onInserted(position + changed, count - changed);
+            }
+            mRemovedPosition = -1;
+            mRemovedCount = 0;
+        } else {
+            flush();
+            mTarget.onInserted(position, count);
+        }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        flush();
+        mRemovedPosition = position;
+        mRemovedCount = count;
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        flush();
+        mTarget.onMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        flush();
+        mTarget.onChanged(position, count, payload);
+    }
+
+    /**
+     * Dispatch pending removal.
+     */
+    void flush() {
+        if (mRemovedPosition >= 0) {
+            mTarget.onRemoved(mRemovedPosition, mRemovedCount);
+            mRemovedPosition = -1;
+            mRemovedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Payload of item change notification, carries keys of data that changed so that only views depending on them are
+ * rebound.
+ */
+public final class PartialUpdate {
+
+    @NonNull
+    private final Set<String> mKeys;
+
+    public PartialUpdate(@NonNull Collection<String> keys) {
+        this.mKeys = Collections.unmodifiableSet(new HashSet<>(keys));
+    }
+
+    @NonNull
+    public Set<String> getKeys() {
+        return mKeys;
+    }
+
+    /**
+     * Merge payloads of one bind.
+     *
+     * @param payloads payloads dispatched by {@link androidx.recyclerview.widget.RecyclerView.Adapter}
+     * @return union of changed keys, or null if there is any full change, which requires a full bind
+     */
+    @Nullable
+    public static Set<String> mergeKeys(@NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            return null;
+        }
+        if (payloads.size() == 1) {
+            Object payload = payloads.get(0);
+            return payload instanceof PartialUpdate ? ((PartialUpdate) payload).mKeys : null;
+        }
+        Set<String> keys = new HashSet<>();
+        for (int i = 0, size = payloads.size(); i < size; i++) {
+            Object payload = payloads.get(i);
+            if (!(payload instanceof PartialUpdate)) {
+                return null;
+            }
+            keys.addAll(((PartialUpdate) payload).mKeys);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.RecyclerView.ViewHolder;
+import com.tmall.wireless.tangram.util.LogUtils;
+
+/**
+ * Pool of recycled views shared by engines built from the same {@link com.tmall.wireless.tangram.TangramBuilder}, so
+ * that the same cells inflated by one engine are reused by others. It also keeps the registry of item types, so that
+ * the same type of cells gets the same view type in all engines.
+ * <p>
+ * Each engine takes a {@link Lease} as its RecycledViewPool. A view is only reused by leases of the same context as the
+ * lease recycling it, and views of a context are destroyed once all leases of that context are released. Views beyond the
+ * max of a type, or the max of all types, are destroyed in least recently recycled order.
+ * <p>
+ * Should only be used on main thread.
+ */
+public class SharedViewPool {
+
+    private static final String TAG = "SharedViewPool";
+
+    private static final int DEFAULT_MAX_SCRAP = 10;
+
+    private final AtomicInteger mTypeId = new AtomicInteger(0);
+
+    private final Map<String, Integer> mStrKeys = new ConcurrentHashMap<>(64);
+
+    private final SparseArray<String> mId2Types = new SparseArray<>(64);
+
+    private final SparseArray<ArrayDeque<ViewHolder>> mScraps = new SparseArray<>();
+
+    private final SparseIntArray mMaxScraps = new SparseIntArray();
+
+    // recycled views to context of leases recycling them, in least recently recycled order
+    private final LinkedHashMap<ViewHolder, Context> mRecycled = new LinkedHashMap<>();
+
+    private final IdentityHashMap<Context, Integer> mLeaseCounts = new IdentityHashMap<>();
+
+    // count of recycled views of each type by context, kept along with mRecycled
+    private final IdentityHashMap<Context, SparseIntArray> mRecycledCounts = new IdentityHashMap<>();
+
+    private final int mMaxTotal;
+
+    /**
+     * @param maxTotal max count of recycled views of all types and all contexts
+     */
+    public SharedViewPool(int maxTotal) {
+        this.mMaxTotal = Math.max(maxTotal, 1);
+    }
+
+    /**
+     * Find or allocate the item type for a key, may be called on worker thread.
+     */
+    public int registerItemType(@NonNull String key, @NonNull String cellType) {
+        Integer type = mStrKeys.get(key);
+        if (type != null) {
+            return type;
+        }
+        synchronized (mId2Types) {
+            type = mStrKeys.get(key);
+            if (type == null) {
+                type = mTypeId.getAndIncrement();
+                mId2Types.put(type, cellType);
+                mStrKeys.put(key, type);
+            }
+            return type;
+        }
+    }
+
+    /**
+     * @return type of cell for the item type, or null if not registered
+     */
+    @Nullable
+    public String getCellType(int viewType) {
+        synchronized (mId2Types) {
+            return mId2Types.get(viewType);
+        }
+    }
+
+    /**
+     * Take a lease for a RecyclerView, should be released when the engine is destroyed.
+     *
+     * @param context context of views created by the engine
+     */
+    @MainThread
+    @NonNull
+    public Lease lease(@NonNull Context context) {
+        Integer count = mLeaseCounts.get(context);
+        mLeaseCounts.put(context, count == null ? 1 : count + 1);
+        return new Lease(context);
+    }
+
+    /**
+     * @param max max recycled views of the type, shared by all contexts
+     */
+    @MainThread
+    public void setMaxRecycledViews(int viewType, int max) {
+        int limit = Math.max(max, 0);
+        mMaxScraps.put(viewType, limit);
+        ArrayDeque<ViewHolder> scrap = mScraps.get(viewType);
+        while (scrap != null && scrap.size() > limit) {
+            destroy(scrap.pollFirst());
+        }
+    }
+
+    /**
+     * Grow max recycled views of the type to at least count.
+     */
+    @MainThread
+    public void ensureCapacity(int viewType, int count) {
+        if (count > mMaxScraps.get(viewType, DEFAULT_MAX_SCRAP)) {
+            mMaxScraps.put(viewType, count);
+        }
+    }
+
+    /**
+     * @return total count of recycled views
+     */
+    public int size() {
+        return mRecycled.size();
+    }
+
+    /**
+     * Destroy recycled views of the least recently recycled until at most count are left.
+     */
+    @MainThread
+    public void trimToSize(int count) {
+        Iterator<Map.Entry<ViewHolder, Context>> iterator = mRecycled.entrySet().iterator();
+        while (mRecycled.size() > count && iterator.hasNext()) {
+            Map.Entry<ViewHolder, Context> entry = iterator.next();
+            ViewHolder holder = entry.getKey();
+            countRecycled(holder.getItemViewType(), entry.getValue(), -1);
+            iterator.remove();
+            ArrayDeque<ViewHolder> scrap = mScraps.get(holder.getItemViewType());
+            if (scrap != null) {
+                scrap.remove(holder);
+            }
+            destroyViewHolder(holder);
+        }
+    }
+
+    /**
+     * Destroy all recycled views created with the context.
+     */
+    @MainThread
+    public void purge(@NonNull Context context) {
+        Iterator<Map.Entry<ViewHolder, Context>> iterator = mRecycled.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ViewHolder, Context> entry = iterator.next();
+            if (entry.getValue() == context) {
+                ViewHolder holder = entry.getKey();
+                iterator.remove();
+                ArrayDeque<ViewHolder> scrap = mScraps.get(holder.getItemViewType());
+                if (scrap != null) {
+                    scrap.remove(holder);
+                }
+                destroyViewHolder(holder);
+            }
+        }
+        mRecycledCounts.remove(context);
+    }
+
+    @Nullable
+    private ViewHolder obtain(int viewType, Context context) {
+        ArrayDeque<ViewHolder> scrap = mScraps.get(viewType);
+        if (scrap == null) {
+            return null;
+        }
+        // the most recently recycled first
+        Iterator<ViewHolder> iterator = scrap.descendingIterator();
+        while (iterator.hasNext()) {
+            ViewHolder holder = iterator.next();
+            if (mRecycled.get(holder) == context) {
+                iterator.remove();
+                mRecycled.remove(holder);
+                countRecycled(viewType, context, -1);
+                return holder;
+            }
+        }
+        return null;
+    }
+
+    private void recycle(ViewHolder holder, Context context) {
+        int viewType = holder.getItemViewType();
+        if (mRecycled.containsKey(holder)) {
+            return;
+        }
+        int max = mMaxScraps.get(viewType, DEFAULT_MAX_SCRAP);
+        if (max <= 0) {
+            destroyViewHolder(holder);
+            return;
+        }
+        ArrayDeque<ViewHolder> scrap = mScraps.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayDeque<>();
+            mScraps.put(viewType, scrap);
+        }
+        while (scrap.size() >= max) {
+            destroy(scrap.pollFirst());
+        }
+        scrap.addLast(holder);
+        mRecycled.put(holder, context);
+        countRecycled(viewType, context, 1);
+        if (mRecycled.size() > mMaxTotal) {
+            trimToSize(mMaxTotal);
+        }
+    }
+
+    private int getRecycledViewCount(int viewType, Context context) {
+        SparseIntArray counts = mRecycledCounts.get(context);
+        return counts != null ? counts.get(viewType, 0) : 0;
+    }
+
+    private void countRecycled(int viewType, Context context, int delta) {
+        SparseIntArray counts = mRecycledCounts.get(context);
+        if (counts == null) {
+            counts = new SparseIntArray();
+            mRecycledCounts.put(context, counts);
+        }
+        counts.put(viewType, counts.get(viewType, 0) + delta);
+    }
+
+    private void release(Context context) {
+        Integer count = mLeaseCounts.get(context);
+        if (count == null || count <= 1) {
+            mLeaseCounts.remove(context);
+            // nobody would reuse views of this context, do not leak it
+            purge(context);
+        } else {
+            mLeaseCounts.put(context, count - 1);
+        }
+    }
+
+    private void destroy(@Nullable ViewHolder holder) {
+        if (holder != null) {
+            Context context = mRecycled.remove(holder);
+            if (context != null) {
+                countRecycled(holder.getItemViewType(), context, -1);
+            }
+            destroyViewHolder(holder);
+        }
+    }
+
+    private static void destroyViewHolder(ViewHolder holder) {
+        if (holder.itemView instanceof Closeable) {
+            try {
+                ((Closeable) holder.itemView).close();
+            } catch (IOException e) {
+                LogUtils.e(TAG, "close view failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * RecycledViewPool of an engine backed by the shared pool. Views are kept in the shared pool when RecyclerView
+     * clears its pool, until the lease is released.
+     */
+    public final class Lease extends RecyclerView.RecycledViewPool {
+
+        @NonNull
+        private final Context mContext;
+
+        private boolean mReleased;
+
+        private Lease(@NonNull Context context) {
+            this.mContext = context;
+        }
+
+        @NonNull
+        public SharedViewPool getSharedViewPool() {
+            return SharedViewPool.this;
+        }
+
+        @Override
+        public ViewHolder getRecycledView(int viewType) {
+            return mReleased ? null : obtain(viewType, mContext);
+        }
+
+        @Override
+        public void putRecycledView(ViewHolder scrap) {
+            if (mReleased) {
+                destroyViewHolder(scrap);
+            } else {
+                recycle(scrap, mContext);
+            }
+        }
+
+        @Override
+        public int getRecycledViewCount(int viewType) {
+            return SharedViewPool.this.getRecycledViewCount(viewType, mContext);
+        }
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            SharedViewPool.this.setMaxRecycledViews(viewType, max);
+        }
+
+        @Override
+        public void clear() {
+            // views are shared with other engines, they are destroyed when the lease is released
+        }
+
+        /**
+         * Stop using the shared pool, views of the context are destroyed if it is the last lease of the context.
+         */
+        @MainThread
+        public void release() {
+            if (!mReleased) {
+                mReleased = true;
+                SharedViewPool.this.release(mContext);
+            }
+        }
+    }
+}
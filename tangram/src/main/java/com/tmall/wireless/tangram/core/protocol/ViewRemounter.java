@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.tmall.wireless.tangram.core.protocol;
+
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import android.view.View;
+
+/**
+ * Optionally implemented by {@link ControlBinder}, notified when a view is bound again to the same data and the full
+ * mount is skipped.
+ */
+public interface ViewRemounter<DT, V extends View> {
+
+    /**
+     * Data has not changed since last mount.
+     */
+    void remountView(@NonNull DT data, @NonNull V view);
+
+    /**
+     * Only data of given keys has changed since last mount.
+     *
+     * @return false if view can not be partially rebound, it will be mounted again
+     */
+    boolean remountView(@NonNull DT data, @NonNull V view, @NonNull Set<String> changedKeys);
+}
@@ -24,8 +24,13 @@
 
 package com.tmall.wireless.tangram.dataparser.concrete;
 
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -33,6 +38,7 @@ import com.tmall.wireless.tangram.MVHelper;
 import com.tmall.wireless.tangram.core.R;
 
 import com.tmall.wireless.tangram.core.protocol.ControlBinder;
+import com.tmall.wireless.tangram.core.protocol.ViewRemounter;
 import com.tmall.wireless.tangram.structure.BaseCell;
 import com.tmall.wireless.tangram.structure.ViewCreator;
 import com.tmall.wireless.tangram.structure.viewcreator.ViewHolderCreator;
@@ -41,7 +47,8 @@ import com.tmall.wireless.tangram.util.Preconditions;
 /**
  *
  */
-public class BaseCellBinder<T extends ViewHolderCreator.ViewHolder, V extends View> implements ControlBinder<BaseCell, V> {
+public class BaseCellBinder<T extends ViewHolderCreator.ViewHolder, V extends View> implements ControlBinder<BaseCell, V>,
+    ViewRemounter<BaseCell, V> {
 
     private static final String TAG = "BaseCellBinder";
 
@@ -54,6 +61,8 @@ public class BaseCellBinder<T extends ViewHolderCreator.ViewHolder, V extends Vi
 
     private String type;
 
+    private final Queue<V> mPreparedViews = new ConcurrentLinkedQueue<>();
+
     public BaseCellBinder(@NonNull Class<V> viewClz, @NonNull MVHelper mvHelper) {
         this.mViewCreator = new ViewCreator<>(viewClz);
         this.mMvHelper = Preconditions.checkNotNull(mvHelper, "mvHelper should not be null");
@@ -72,7 +81,10 @@ public class BaseCellBinder<T extends ViewHolderCreator.ViewHolder, V extends Vi
     @NonNull
     @Override
     public V createView(Context context, ViewGroup parent) {
-        V v;
+        V v = mPreparedViews.poll();
+        if (v != null) {
+            return v;
+        }
         if (viewHolderCreator != null) {
             v = viewHolderCreator.create(context, parent);
         } else if (mViewCreator != null) {
@@ -87,11 +99,58 @@ public class BaseCellBinder<T extends ViewHolderCreator.ViewHolder, V extends Vi
         return v;
     }
 
+    /**
+     * @return true if views are inflated from xml layout, which is allowed on worker thread
+     */
+    public boolean canPrepareView() {
+        return viewHolderCreator != null;
+    }
+
+    /**
+     * Inflate a view ahead, it is returned by next {@link #createView(Context, ViewGroup)}. Parent is only used to
+     * generate layout params, the layout and its views must be safe to inflate off main thread.
+     *
+     * @return true if prepared
+     */
+    @WorkerThread
+    public boolean prepareView(Context context, ViewGroup parent) {
+        if (viewHolderCreator == null) {
+            return false;
+        }
+        V v = viewHolderCreator.create(context, parent);
+        if (v == null) {
+            return false;
+        }
+        if (v.getId() <= 0) {
+            v.setId(R.id.TANGRAM_VIEW_CONTAINER_ID);
+        }
+        mPreparedViews.offer(v);
+        return true;
+    }
+
+    public boolean hasPreparedView() {
+        return !mPreparedViews.isEmpty();
+    }
+
+    public void clearPreparedViews() {
+        mPreparedViews.clear();
+    }
+
     @Override
     public void mountView(@NonNull BaseCell data, @NonNull V view) {
         mMvHelper.mountView(data, view);
     }
 
+    @Override
+    public void remountView(@NonNull BaseCell data, @NonNull V view) {
+        mMvHelper.remountView(data, view);
+    }
+
+    @Override
+    public boolean remountView(@NonNull BaseCell data, @NonNull V view, @NonNull Set<String> changedKeys) {
+        return mMvHelper.remountView(data, view, changedKeys);
+    }
+
     @Override
     public void unmountView(@NonNull BaseCell data, @NonNull V view) {
         mMvHelper.unMountView(data, view);
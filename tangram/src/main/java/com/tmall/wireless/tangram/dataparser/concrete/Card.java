@@ -26,10 +26,12 @@ package com.tmall.wireless.tangram.dataparser.concrete;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.SparseArray;
 import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewPropertyAnimator;
 import android.widget.FrameLayout;
@@ -40,7 +42,9 @@ import com.alibaba.android.vlayout.Range;
 import com.alibaba.android.vlayout.layout.BaseLayoutHelper;
 import com.alibaba.android.vlayout.layout.FixAreaLayoutHelper;
 import com.alibaba.android.vlayout.layout.MarginLayoutHelper;
+import com.tmall.wireless.tangram.CardRefresher;
 import com.tmall.wireless.tangram.Engine;
+import com.tmall.wireless.tangram.LayoutViewPool;
 import com.tmall.wireless.tangram.MVHelper;
 import com.tmall.wireless.tangram.TangramBuilder;
 import com.tmall.wireless.tangram.core.service.ServiceManager;
@@ -125,6 +129,10 @@ public abstract class Card extends ComponentLifecycle {
     @NonNull
     protected List<BaseCell> mCells = new ArrayList<>();
 
+    private List<BaseCell> mUnmodifiableCells;
+
+    private List<BaseCell> mUnmodifiableSource;
+
     @NonNull
     protected final List<BaseCell> mPendingCells = new ArrayList<>();
 
@@ -398,11 +406,136 @@ public abstract class Card extends ComponentLifecycle {
      */
     protected boolean mRetainLayout = true;
 
+    /*
+     * layoutHelpers are only rebuilt when style, count of cells or cells changed since they are built
+     */
+    private final LayoutCache mLayoutCache = new LayoutCache();
+
+    private final LayoutCache mChunkCache = new LayoutCache();
+
+    private int mLayoutGeneration;
+
+    @Nullable
+    private LayoutHelper[] mChunkHelpers;
+
+    private int mChunkSize;
+
+    @Nullable
+    private Style mListenerStyle;
+
+    private BindListener mBindListener;
+
+    private UnbindListener mUnbindListener;
+
     @Nullable
     public final LayoutHelper getLayoutHelper() {
+        if (mRetainLayout && mLayoutHelper != null && mLayoutCache.matches(this)) {
+            return mLayoutHelper;
+        }
 
         LayoutHelper helper = convertLayoutHelper(mLayoutHelper);
 
+        bindStyle(helper);
+
+        if (mRetainLayout) {
+            mLayoutHelper = helper;
+            mLayoutCache.record(this);
+        }
+
+        return helper;
+    }
+
+    /**
+     * Force layoutHelpers to be rebuilt next time, should be called if anything affecting layout changed other than
+     * style and cells, such as fields of style changed in place without changing its {@link Style#layoutHash()}.
+     */
+    public void invalidateLayoutHelper() {
+        mLayoutGeneration++;
+    }
+
+    /**
+     * Split this card into chunks of about chunkSize cells, each chunk is laid out by its own layoutHelper sharing the
+     * style of this card, so that span lookups and range offsets of a huge card cost O(chunk). Top margin and padding
+     * only apply to the first chunk and bottom ones to the last chunk. The card is still one card in adapter.
+     *
+     * @param chunkSize max count of cells in a chunk, chunks may be a little larger to keep rows of cells complete
+     * @return layoutHelpers of chunks, or null if this card is not split
+     */
+    @Nullable
+    public final List<LayoutHelper> getChunkLayoutHelpers(int chunkSize) {
+        if (chunkSize <= 0 || mCells.size() <= chunkSize) {
+            return null;
+        }
+        if (mRetainLayout && mChunkHelpers != null && mChunkSize == chunkSize && mChunkCache.matches(this)) {
+            List<LayoutHelper> helpers = new ArrayList<>(mChunkHelpers.length);
+            Collections.addAll(helpers, mChunkHelpers);
+            return helpers;
+        }
+        int[] bounds = computeChunkBounds(chunkSize);
+        if (bounds == null || bounds.length <= 2) {
+            return null;
+        }
+        int count = bounds.length - 1;
+        LayoutHelper[] chunks = new LayoutHelper[count];
+        for (int i = 0; i < count; i++) {
+            LayoutHelper helper = convertChunkLayoutHelper(bounds[i], bounds[i + 1], chunks, i);
+            if (helper == null) {
+                return null;
+            }
+            bindStyle(helper);
+            if (style != null && helper instanceof MarginLayoutHelper) {
+                boolean first = i == 0;
+                boolean last = i == count - 1;
+                ((MarginLayoutHelper) helper).setMargin(style.margin[Style.MARGIN_LEFT_INDEX],
+                        first ? style.margin[Style.MARGIN_TOP_INDEX] : 0,
+                        style.margin[Style.MARGIN_RIGHT_INDEX],
+                        last ? style.margin[Style.MARGIN_BOTTOM_INDEX] : 0);
+                ((MarginLayoutHelper) helper).setPadding(style.padding[Style.MARGIN_LEFT_INDEX],
+                        first ? style.padding[Style.MARGIN_TOP_INDEX] : getChunkGap(),
+                        style.padding[Style.MARGIN_RIGHT_INDEX],
+                        last ? style.padding[Style.MARGIN_BOTTOM_INDEX] : 0);
+            }
+            chunks[i] = helper;
+        }
+        if (mRetainLayout) {
+            mChunkHelpers = chunks;
+            mChunkSize = chunkSize;
+            mChunkCache.record(this);
+        }
+        List<LayoutHelper> helpers = new ArrayList<>(count);
+        Collections.addAll(helpers, chunks);
+        return helpers;
+    }
+
+    /**
+     * @param chunkSize max count of cells in a chunk
+     * @return start offsets of chunks followed by count of cells, or null if this card can not be split
+     */
+    @Nullable
+    protected int[] computeChunkBounds(int chunkSize) {
+        return null;
+    }
+
+    /**
+     * @param start  offset of first cell in this chunk
+     * @param end    offset after last cell in this chunk
+     * @param chunks layoutHelpers of all chunks, filled before this chunk
+     * @param index  index of this chunk
+     * @return layoutHelper for cells in [start, end)
+     */
+    @Nullable
+    protected LayoutHelper convertChunkLayoutHelper(int start, int end, @NonNull LayoutHelper[] chunks, int index) {
+        return null;
+    }
+
+    /**
+     * @return space between two chunks, as top padding of a chunk except the first one
+     */
+    protected int getChunkGap() {
+        return 0;
+    }
+
+    private void bindStyle(@Nullable LayoutHelper helper) {
         // bind style to helper
         if (style != null && helper != null) {
             helper.setZIndex(style.zIndex);
@@ -411,28 +544,12 @@ public abstract class Card extends ComponentLifecycle {
                 BaseLayoutHelper baseHelper = (BaseLayoutHelper) helper;
                 baseHelper.setBgColor(style.bgColor);
                 if (!TextUtils.isEmpty(style.bgImgUrl)) {
-                    if (serviceManager != null && serviceManager.getService(CardSupport.class) != null) {
-                        final CardSupport support = serviceManager.getService(CardSupport.class);
-                        baseHelper.setLayoutViewBindListener(new BindListener(style) {
-                            @Override
-                            public void onBind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
-                                support.onBindBackgroundView(layoutView, Card.this);
-                            }
-                        });
-                        baseHelper.setLayoutViewUnBindListener(new UnbindListener(style) {
-                            @Override
-                            public void onUnbind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
-                                support.onUnbindBackgroundView(layoutView, Card.this);
-                            }
-                        });
-                    } else {
-                        baseHelper.setLayoutViewBindListener(new BindListener(style));
-                        baseHelper.setLayoutViewUnBindListener(new UnbindListener(style));
-                    }
+                    baseHelper.setLayoutViewBindListener(getBackgroundBindListener());
                 } else {
                     baseHelper.setLayoutViewBindListener(null);
-                    baseHelper.setLayoutViewUnBindListener(null);
                 }
+                // background views of color are released to pool too
+                baseHelper.setLayoutViewUnBindListener(getBackgroundUnbindListener());
 
                 if (!Float.isNaN(style.aspectRatio)) {
                     // ((BaseLayoutHelper) helper).setAspectRatio(style.aspectRatio);
@@ -479,12 +596,77 @@ public abstract class Card extends ComponentLifecycle {
                         style.padding[Style.MARGIN_RIGHT_INDEX], style.padding[Style.MARGIN_BOTTOM_INDEX]);
             }
         }
+    }
 
-        if (mRetainLayout) {
-            mLayoutHelper = helper;
+    /**
+     * @return listener binding background image of this card, created once for its style
+     */
+    protected final BindListener getBackgroundBindListener() {
+        ensureBackgroundListeners();
+        return mBindListener;
+    }
+
+    /**
+     * @return listener unbinding background image of this card, created once for its style
+     */
+    protected final UnbindListener getBackgroundUnbindListener() {
+        ensureBackgroundListeners();
+        return mUnbindListener;
+    }
+
+    private void ensureBackgroundListeners() {
+        if (mBindListener != null && mListenerStyle == style) {
+            return;
+        }
+        mListenerStyle = style;
+        final CardSupport support = serviceManager != null ? serviceManager.getService(CardSupport.class) : null;
+        final boolean hasImage = style != null && !TextUtils.isEmpty(style.bgImgUrl);
+        if (support != null) {
+            mBindListener = new BindListener(style) {
+                @Override
+                public void onBind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
+                    support.onBindBackgroundView(layoutView, Card.this);
+                }
+            };
+        } else {
+            mBindListener = new BindListener(style);
         }
+        mUnbindListener = new UnbindListener(style) {
+            @Override
+            public void onUnbind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
+                if (support != null && hasImage) {
+                    support.onUnbindBackgroundView(layoutView, Card.this);
+                }
+                LayoutViewPool pool = serviceManager != null ? serviceManager.getService(LayoutViewPool.class) : null;
+                if (pool != null) {
+                    pool.release(layoutView);
+                }
+            }
+        };
+    }
 
-        return helper;
+    private static final class LayoutCache {
+
+        private int generation = -1;
+
+        @Nullable
+        private Style style;
+
+        private int styleHash;
+
+        private int cellCount = -1;
+
+        boolean matches(@NonNull Card card) {
+            return generation == card.mLayoutGeneration && style == card.style && cellCount == card.mCells.size()
+                && (style == null || styleHash == style.layoutHash());
+        }
+
+        void record(@NonNull Card card) {
+            generation = card.mLayoutGeneration;
+            style = card.style;
+            styleHash = style != null ? style.layoutHash() : 0;
+            cellCount = card.mCells.size();
+        }
     }
 
     public static class BindListener implements BaseLayoutHelper.LayoutViewBindListener {
@@ -497,8 +679,10 @@ public abstract class Card extends ComponentLifecycle {
         @Override
         public void onBind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
             if (mStyle != null && !TextUtils.isEmpty(mStyle.bgImgUrl)) {
-                if (layoutView instanceof ImageView) {
+                // layout view is bound in every layout pass, image is only loaded when url changes
+                if (layoutView instanceof ImageView && !LayoutViewPool.isShowingImage(layoutView, mStyle.bgImgUrl)) {
                     ImageUtils.doLoadImageUrl((ImageView) layoutView, mStyle.bgImgUrl);
+                    LayoutViewPool.setShowingImage(layoutView, mStyle.bgImgUrl);
                 }
             }
         }
@@ -550,7 +734,11 @@ public abstract class Card extends ComponentLifecycle {
     }
 
     public List<BaseCell> getCells() {
-        return Collections.unmodifiableList(mCells);
+        if (mUnmodifiableCells == null || mUnmodifiableSource != mCells) {
+            mUnmodifiableCells = Collections.unmodifiableList(mCells);
+            mUnmodifiableSource = mCells;
+        }
+        return mUnmodifiableCells;
     }
 
     @NonNull
@@ -563,6 +751,8 @@ public abstract class Card extends ComponentLifecycle {
     private final SparseArray<BaseCell> newMap = new SparseArray<>();
 
     public void setCells(@Nullable List<BaseCell> cells) {
+        mCompacted = false;
+        onCellsChanged(0);
         if (mPlaceholderCell != null)
             this.mCells.remove(mPlaceholderCell);
 
@@ -575,6 +765,10 @@ public abstract class Card extends ComponentLifecycle {
         this.mCells.clear();
         if (cells != null) {
             for (BaseCell c : cells) {
+                if (c != null && oldMap.get(System.identityHashCode(c)) != c) {
+                    // cells new to this card may be bound to views of another card
+                    c.invalidateContentVersion();
+                }
                 //noinspection unchecked
                 this.addCellInternal(c, true);
             }
@@ -614,6 +808,7 @@ public abstract class Card extends ComponentLifecycle {
 
 
     public void addCell(@Nullable BaseCell cell) {
+        onCellsChanged(getAppendOffset());
         addCellInternal(cell, false);
 
         adjustPendingCells(false);
@@ -627,6 +822,7 @@ public abstract class Card extends ComponentLifecycle {
     }
 
     public void addCells(@Nullable List<BaseCell> cells) {
+        onCellsChanged(getAppendOffset());
         if (cells != null) {
             for (BaseCell cell : cells) {
                 addCellInternal(cell, false);
@@ -645,6 +841,7 @@ public abstract class Card extends ComponentLifecycle {
     }
 
     public void addCells(Card parent, int index, @Nullable List<BaseCell> cells) {
+        onCellsChanged(Math.min(index, getAppendOffset()));
         if (cells != null) {
             int i = 0;
             for (BaseCell cell : cells) {
@@ -669,14 +866,18 @@ public abstract class Card extends ComponentLifecycle {
             mCells.get(i).onRemoved();
         }
         mCells.clear();
+        onCellsChanged(0);
     }
 
     public boolean removeCell(@Nullable BaseCell cell) {
         if (cell == null) {
             return false;
         }
-        boolean removed = mCells.remove(cell);
+        int index = mCells.indexOf(cell);
+        boolean removed = index >= 0;
         if (removed) {
+            mCells.remove(index);
+            onCellsChanged(index);
             cell.onRemoved();
         }
 
@@ -689,8 +890,11 @@ public abstract class Card extends ComponentLifecycle {
         if (cell == null) {
             return false;
         }
-        boolean removed = mCells.remove(cell);
+        int index = mCells.indexOf(cell);
+        boolean removed = index >= 0;
         if (removed) {
+            mCells.remove(index);
+            onCellsChanged(index);
             cell.onRemoved();
         }
         return removed;
@@ -703,6 +907,7 @@ public abstract class Card extends ComponentLifecycle {
         int index = mCells.indexOf(oldCell);
         if (index >= 0) {
             mCells.set(index, newCell);
+            onCellsChanged(index);
             newCell.onAdded();
             oldCell.onRemoved();
             return true;
@@ -711,6 +916,45 @@ public abstract class Card extends ComponentLifecycle {
         }
     }
 
+    public boolean replaceCellSilently(@Nullable BaseCell oldCell, @Nullable BaseCell newCell) {
+        if (oldCell == null || newCell == null) {
+            return false;
+        }
+        int index = mCells.indexOf(oldCell);
+        if (index >= 0) {
+            mCells.set(index, newCell);
+            onCellsChanged(index);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Called when data of a cell is updated in place, its style may have changed. Layout values cached for cells of
+     * this card should be dropped from the cell.
+     *
+     * @param cell the updated cell
+     */
+    public void onCellUpdated(@NonNull BaseCell cell) {
+
+    }
+
+    /**
+     * Called when cells from an offset are added, removed or replaced, cells before it are kept. Subclasses should
+     * call super so that layoutHelpers are rebuilt.
+     *
+     * @param offset offset of the first changed cell
+     */
+    protected void onCellsChanged(int offset) {
+        invalidateLayoutHelper();
+    }
+
+    private int getAppendOffset() {
+        // the placeholder at the end is moved, and pending cells may be inserted anywhere
+        return mPendingCells.isEmpty() ? Math.max(0, mCells.size() - 1) : 0;
+    }
+
     private boolean addCellInternal(@Nullable BaseCell cell, boolean silent) {
         if (cell != null) {
             cell.parentId = id;
@@ -840,8 +1084,33 @@ public abstract class Card extends ComponentLifecycle {
         return (!TextUtils.isEmpty(stringType) || type >= 0) && serviceManager != null;
     }
 
+    /**
+     * Resolve the width a cell gets in this card, which keys heights of cells cached by {@link MVHelper}. Cards not
+     * laying out cells by the available width alone return -1, heights of their cells are not cached.
+     *
+     * @param cell           cell of this card
+     * @param availableWidth width available to cards
+     * @return width of the cell before its own margins, or -1 if unknown
+     */
+    public int resolveCellWidth(@NonNull BaseCell cell, int availableWidth) {
+        return -1;
+    }
+
+    /**
+     * @return width available to cells, excluding margins and paddings of this card
+     */
+    protected int getContentWidth(int availableWidth) {
+        if (style == null) {
+            return availableWidth;
+        }
+        return availableWidth - style.margin[Style.MARGIN_LEFT_INDEX] - style.margin[Style.MARGIN_RIGHT_INDEX]
+            - style.padding[Style.MARGIN_LEFT_INDEX] - style.padding[Style.MARGIN_RIGHT_INDEX];
+    }
+
     public final void notifyDataChange() {
-        if (serviceManager instanceof Engine) {
+        if (serviceManager instanceof CardRefresher) {
+            ((CardRefresher) serviceManager).refreshCard(this);
+        } else if (serviceManager instanceof Engine) {
             ((Engine) serviceManager).refresh();
         }
     }
@@ -892,6 +1161,186 @@ public abstract class Card extends ComponentLifecycle {
     }
 
 
+    /*==========================================
+     * Compaction
+     *==========================================*/
+
+    private boolean mCompacted;
+
+    public boolean isCompacted() {
+        return mCompacted;
+    }
+
+    /**
+     * Only json of cells ({@link BaseCell#extras}) is kept while compacted, so a card can only be compacted if all its
+     * cells are parsed from json. State set on cells by code after parsing is lost once rehydrated, cards holding such
+     * state should not be compacted.
+     *
+     * @return true if cells can be replaced by lightweight stubs and rebuilt from their json later
+     */
+    public boolean canCompact() {
+        if (mCompacted || loading || mCells.isEmpty() || mHeader != null || mFooter != null
+            || !mChildren.isEmpty() || !mPendingCells.isEmpty()) {
+            return false;
+        }
+        for (int i = 0, size = mCells.size(); i < size; i++) {
+            BaseCell cell = mCells.get(i);
+            if (cell == mPlaceholderCell || cell.extras == null || cell.extras.length() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace cells by stubs which keep their count, span and height, stubs of the same layout share one style. Json of
+     * cells is detached from this card, including {@link #KEY_ITEMS} of {@link #extras}, and handed to caller, who keeps
+     * it out of heap and passes it back to {@link #rehydrate(JSONArray, List)}. Only {@link BaseCell#extras} survives,
+     * see {@link #canCompact()}. Caller should refresh this card after compacted.
+     *
+     * @param heights measured heights of cells indexed by position in card, style height is used if not measured
+     * @return json of cells, null if not compacted
+     */
+    @Nullable
+    public JSONArray compact(@Nullable SparseIntArray heights) {
+        if (!canCompact()) {
+            return null;
+        }
+        MVHelper mvHelper = getMVHelper();
+        JSONArray cellsData = new JSONArray();
+        List<BaseCell> stubs = new ArrayList<>(mCells.size());
+        Map<String, Style> stubStyles = new HashMap<>();
+        for (int i = 0, size = mCells.size(); i < size; i++) {
+            BaseCell cell = mCells.get(i);
+            cellsData.put(cell.extras);
+
+            int height = heights != null ? heights.get(i, 0) : 0;
+            if (height <= 0 && cell.style != null && cell.style.height > 0) {
+                height = cell.style.height;
+            }
+            height = Math.max(height, 0);
+            JSONObject stubLayout = new JSONObject();
+            if (cell.style != null && cell.style.extras != null) {
+                // keep span of cell, so that layout of card does not change
+                try {
+                    copyStubLayout(cell.style.extras, stubLayout);
+                } catch (JSONException e) {
+                    Log.w(TAG, Log.getStackTraceString(e), e);
+                }
+            }
+            String stubKey = height + stubLayout.toString();
+            Style stubStyle = stubStyles.get(stubKey);
+            if (stubStyle == null) {
+                stubStyle = new Style();
+                stubStyle.height = height;
+                stubStyle.extras = stubLayout;
+                stubStyles.put(stubKey, stubStyle);
+            }
+            PlaceholderCell stub = new PlaceholderCell(stubStyle);
+            stub.parent = this;
+            stub.parentId = id;
+            stub.pos = cell.pos;
+            stub.serviceManager = serviceManager;
+            stubs.add(stub);
+
+            if (mIsActivated) {
+                cell.removed();
+            }
+            if (mvHelper != null) {
+                mvHelper.release(cell);
+            }
+        }
+        if (extras != null) {
+            extras.remove(KEY_ITEMS);
+        }
+        mCompacted = true;
+        mCells.clear();
+        mCells.addAll(stubs);
+        if (mIsActivated) {
+            for (int i = 0, size = stubs.size(); i < size; i++) {
+                stubs.get(i).added();
+            }
+        }
+        onCellsChanged(0);
+        return cellsData;
+    }
+
+    /**
+     * Copy style keys affecting layout of this card from a cell to its compaction stub.
+     *
+     * @param cellStyle {@link Style#extras} of cell
+     * @param stubStyle {@link Style#extras} of stub
+     */
+    protected void copyStubLayout(@NonNull JSONObject cellStyle, @NonNull JSONObject stubStyle) throws JSONException {
+        if (cellStyle.has(Style.KEY_DISPLAY)) {
+            stubStyle.put(Style.KEY_DISPLAY, cellStyle.opt(Style.KEY_DISPLAY));
+        }
+    }
+
+    /**
+     * Build cells from json returned by {@link #compact(SparseIntArray)} without touching this card, so that it can be
+     * done in worker thread. Json that can not be built any more results in {@link BaseCell#NaN}.
+     *
+     * @return built cells, null if this card is not attached to an engine
+     */
+    @WorkerThread
+    @Nullable
+    public List<BaseCell> parseCompactedCells(@NonNull JSONArray cellsData) {
+        MVHelper mvHelper = getMVHelper();
+        if (mvHelper == null || serviceManager == null) {
+            return null;
+        }
+        List<BaseCell> cells = new ArrayList<>(cellsData.length());
+        for (int i = 0, length = cellsData.length(); i < length; i++) {
+            JSONObject cellData = cellsData.optJSONObject(i);
+            // nested cards would be added to this card while parsing
+            cells.add(cellData != null && !Utils.isCard(cellData)
+                ? createCell(this, mvHelper, cellData, serviceManager, false) : BaseCell.NaN);
+        }
+        return cells;
+    }
+
+    /**
+     * Put cells built by {@link #parseCompactedCells(JSONArray)} back in place of stubs. Caller should refresh this card
+     * after rehydrated. Cells that can not be rebuilt any more keep their stubs, so that count of cells does not change.
+     * {@link #KEY_ITEMS} of {@link #extras} is restored with json of cells.
+     *
+     * @param cellsData json returned by {@link #compact(SparseIntArray)}
+     * @param cells     cells built from json
+     * @return true if rehydrated, false if this card is no longer compacted
+     */
+    public boolean rehydrate(@NonNull JSONArray cellsData, @NonNull List<BaseCell> cells) {
+        if (!mCompacted) {
+            return false;
+        }
+        List<BaseCell> rehydrated = new ArrayList<>(Math.max(cells.size(), mCells.size()));
+        for (int i = 0, size = cells.size(); i < size; i++) {
+            BaseCell cell = cells.get(i);
+            if (cell == BaseCell.NaN) {
+                // keep the stub in place, a cell type may be unregistered since compacted
+                if (i < mCells.size()) {
+                    cell = mCells.get(i);
+                } else {
+                    continue;
+                }
+            }
+            rehydrated.add(cell);
+        }
+        // cells added while compacted
+        for (int i = cells.size(), size = mCells.size(); i < size; i++) {
+            rehydrated.add(mCells.get(i));
+        }
+        if (extras != null) {
+            try {
+                extras.put(KEY_ITEMS, cellsData);
+            } catch (JSONException e) {
+                Log.w(TAG, Log.getStackTraceString(e), e);
+            }
+        }
+        setCells(rehydrated);
+        return true;
+    }
+
     /*==========================================
      * Place Holder
      *==========================================*/
@@ -922,6 +1371,7 @@ public abstract class Card extends ComponentLifecycle {
             this.mCells.remove(mPlaceholderCell);
             this.mPlaceholderCell = null;
         }
+        onCellsChanged(0);
     }
 
 
@@ -934,6 +1384,7 @@ public abstract class Card extends ComponentLifecycle {
         } else {
             storeAspectRatio();
         }
+        onCellsChanged(Math.max(0, mCells.size() - 1));
         if (!this.mCells.contains(mPlaceholderCell)) {
             if (requirePlaceholderCell()) {
                 this.mCells.add(mPlaceholderCell);
@@ -1026,12 +1477,9 @@ public abstract class Card extends ComponentLifecycle {
     }
 
     public Card findChildCardById(String id) {
-        if (!mChildren.isEmpty()) {
-            for (int i = 0, size = mChildren.size(); i < size; i++) {
-                Card card = mChildren.get(i);
-                if (card != null && card.id.equals(id)) {
-                    return card;
-                }
+        for (Card card : mChildren.values()) {
+            if (card != null && card.id != null && card.id.equals(id)) {
+                return card;
             }
         }
         return null;
@@ -1075,6 +1523,17 @@ public abstract class Card extends ComponentLifecycle {
             this.stringType = String.valueOf(TangramBuilder.TYPE_EXTENDED_VIEW);
         }
 
+        /**
+         * Placeholder laid out by a style shared with other placeholders.
+         */
+        PlaceholderCell(@NonNull Style style) {
+            this.mHeight = style.height;
+            this.mBgColor = style.bgColor;
+            this.style = style;
+            this.type = TangramBuilder.TYPE_EXTENDED_VIEW;
+            this.stringType = String.valueOf(TangramBuilder.TYPE_EXTENDED_VIEW);
+        }
+
         public void bindView(@NonNull View view) {
             if (mPlaceholderView != null && view instanceof FrameLayout) {
                 if (mPlaceholderView.getParent() instanceof FrameLayout) {
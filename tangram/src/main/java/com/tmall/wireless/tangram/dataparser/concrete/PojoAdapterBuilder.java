@@ -29,6 +29,7 @@ import androidx.annotation.NonNull;
 
 import com.alibaba.android.vlayout.VirtualLayoutManager;
 import com.tmall.wireless.tangram.MVHelper;
+import com.tmall.wireless.tangram.core.adapter.SharedViewPool;
 import com.tmall.wireless.tangram.core.service.ServiceManager;
 import com.tmall.wireless.tangram.dataparser.IAdapterBuilder;
 import com.tmall.wireless.tangram.structure.BaseCell;
@@ -52,7 +53,7 @@ public class PojoAdapterBuilder implements IAdapterBuilder<Card, BaseCell> {
 
         final PojoGroupBasicAdapter adapter = new PojoGroupBasicAdapter(context, layoutManager, componentBinderResolver,
             cardBinderResolver, mvHelper, viewManager);
-
+        adapter.setSharedViewPool(serviceManager.getService(SharedViewPool.class));
 
         return adapter;
     }
@@ -30,14 +30,18 @@ import com.alibaba.android.vlayout.VirtualLayoutManager;
 
 import android.util.Log;
 import com.tmall.wireless.tangram.MVHelper;
+import com.tmall.wireless.tangram.core.adapter.AdapterState;
 import com.tmall.wireless.tangram.core.adapter.BinderViewHolder;
 import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.core.adapter.SharedViewPool;
 import com.tmall.wireless.tangram.core.protocol.ControlBinder;
 import com.tmall.wireless.tangram.structure.BaseCell;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LongSparseArray;
+import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.util.Pair;
 import android.util.SparseArray;
@@ -50,9 +54,12 @@ import com.tmall.wireless.vaf.framework.ViewManager;
 import java.lang.annotation.Inherited;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -66,6 +73,11 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
 
     private AtomicInteger mTypeId = new AtomicInteger(0);
 
+    /*
+     * generation of item types cached in cells, increased when template versions may change
+     */
+    private int mItemTypeGeneration = 0;
+
     private final Map<String, Integer> mStrKeys = new ConcurrentHashMap<>(64);
 
     private MVHelper mMvHelper;
@@ -78,6 +90,61 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
      */
     private final SparseArray<String> mId2Types = new SparseArray<>(64);
 
+    /*
+     * registry of item types shared with other engines, used instead of the mappings above if not null
+     */
+    @Nullable
+    private SharedViewPool mSharedViewPool;
+
+    /*
+     * stable id <=> cell, used to resolve conflicts of content-derived ids, only maintained when has stable ids
+     */
+    private final LongSparseArray<BaseCell> mStableIds = new LongSparseArray<>(64);
+
+    /*
+     * ids of cells whose own stable id conflicts with another cell, cells keep their derived ids
+     */
+    private final IdentityHashMap<BaseCell, Long> mResolvedIds = new IdentityHashMap<>();
+
+    /*
+     * indexes for lookups by id and type, updated on every mutation
+     */
+    private final PositionIndex<BaseCell> mIdCellIndex = new PositionIndex<BaseCell>() {
+        @Override
+        String keyOf(@NonNull BaseCell cell) {
+            return TextUtils.isEmpty(cell.id) ? null : cell.id;
+        }
+
+        @Override
+        int positionOf(@NonNull BaseCell cell) {
+            return getPositionByItem(cell);
+        }
+    };
+
+    private final PositionIndex<BaseCell> mTypeCellIndex = new PositionIndex<BaseCell>() {
+        @Override
+        String keyOf(@NonNull BaseCell cell) {
+            return cell.stringType;
+        }
+
+        @Override
+        int positionOf(@NonNull BaseCell cell) {
+            return getPositionByItem(cell);
+        }
+    };
+
+    private final PositionIndex<Card> mIdCardIndex = new PositionIndex<Card>() {
+        @Override
+        String keyOf(@NonNull Card card) {
+            return TextUtils.isEmpty(card.id) ? null : card.id;
+        }
+
+        @Override
+        int positionOf(@NonNull Card card) {
+            return findCardIdxForCard(card);
+        }
+    };
+
     PojoGroupBasicAdapter(@NonNull Context context, @NonNull VirtualLayoutManager layoutManager,
                           @NonNull BaseCellBinderResolver componentBinderResolver,
                           @NonNull BaseCardBinderResolver cardBinderResolver,
@@ -86,8 +153,15 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
         super(context, layoutManager, componentBinderResolver, cardBinderResolver);
         this.mMvHelper = mvHelper;
         this.mViewManager = viewManager;
-        //if true, this adapter's items have stable IDs, but BaseCell.objectId return 0. So not use.
-        //setHasStableIds(true);
+        // stable ids are opt-in, see TangramEngine#setEnableStableIds
+    }
+
+    /**
+     * Allocate item types from a pool shared with other engines, so that their views can be reused here. Must be
+     * called before any item type is resolved.
+     */
+    void setSharedViewPool(@Nullable SharedViewPool sharedViewPool) {
+        this.mSharedViewPool = sharedViewPool;
     }
 
     /**
@@ -98,25 +172,61 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
      */
     @Override
     public List<BaseCell> getItems(@NonNull Card card) {
+        Card forCard = null;
+        if (card.style != null && !TextUtils.isEmpty(card.style.forLabel)) {
+            forCard = mIdCardCache.get(card.style.forLabel);
+        }
+        return getItems(card, forCard);
+    }
+
+    @Override
+    protected List<BaseCell> getItemsForState(@NonNull Card card, @NonNull List<Card> cards) {
+        Card forCard = null;
         if (card.style != null && !TextUtils.isEmpty(card.style.forLabel)) {
             String forId = card.style.forLabel;
-            if (mIdCardCache.containsKey(forId)) {
-                Card forCard = mIdCardCache.get(forId);
-                // if the "forLabel" card is empty, this card also should be empty
-                if (forCard.mCells.size() == 0) {
-                    if (TextUtils.isEmpty(forCard.load)) {
-                        return null;
-                    } else {
-                        return Collections.emptyList();
-                    }
+            // the last card with this id wins, the same as in transformCards
+            for (int i = cards.size() - 1; i >= 0; i--) {
+                Card c = cards.get(i);
+                if (c != null && forId.equals(c.id)) {
+                    forCard = c;
+                    break;
                 }
             }
         }
+        return getItems(card, forCard);
+    }
+
+    private List<BaseCell> getItems(@NonNull Card card, @Nullable Card forCard) {
+        // if the "forLabel" card is empty, this card also should be empty
+        if (forCard != null && forCard.mCells.size() == 0) {
+            if (TextUtils.isEmpty(forCard.load)) {
+                return null;
+            } else {
+                return Collections.emptyList();
+            }
+        }
 
         if (TextUtils.isEmpty(card.load) && card.mCells.isEmpty()) {
             return null;
         }
-        return new LinkedList<>(card.mCells);
+        return new ArrayList<>(card.mCells);
+    }
+
+    @Override
+    public int getPositionByItem(BaseCell item) {
+        if (item != null && item.parent != null) {
+            // only search in range of its card
+            int cardIdx = findCardIdxForCard(item.parent);
+            if (cardIdx >= 0) {
+                Range<Integer> range = mCards.get(cardIdx).first;
+                for (int i = range.getLower(), upper = range.getUpper(); i < upper; i++) {
+                    if (mData.get(i) == item) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return super.getPositionByItem(item);
     }
 
     @Override
@@ -162,10 +272,19 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
 
     @Override
     public String getCellTypeFromItemType(int viewType) {
-        if (mId2Types.indexOfKey(viewType) < 0) {
-            throw new IllegalStateException("Can not found item.type for viewType: " + viewType);
+        if (mSharedViewPool != null) {
+            String cellType = mSharedViewPool.getCellType(viewType);
+            if (cellType == null) {
+                throw new IllegalStateException("Can not found item.type for viewType: " + viewType);
+            }
+            return cellType;
+        }
+        synchronized (mId2Types) {
+            if (mId2Types.indexOfKey(viewType) < 0) {
+                throw new IllegalStateException("Can not found item.type for viewType: " + viewType);
+            }
+            return mId2Types.get(viewType);
         }
-        return mId2Types.get(viewType);
     }
 
     /**
@@ -176,35 +295,178 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
      */
     @Override
     public int getItemType(BaseCell item) {
+        int cachedType = item.getCachedItemType(mItemTypeGeneration);
+        if (cachedType >= 0) {
+            return cachedType;
+        }
+        int itemType = resolveItemType(item);
+        item.setCachedItemType(itemType, mItemTypeGeneration);
+        return itemType;
+    }
+
+    @Override
+    public void invalidateItemTypes() {
+        super.invalidateItemTypes();
+        mItemTypeGeneration++;
+    }
+
+    @Override
+    protected int[] prepareItemTypes(@NonNull List<BaseCell> components) {
+        int[] itemTypes = new int[components.size()];
+        for (int i = 0, size = components.size(); i < size; i++) {
+            itemTypes[i] = resolveItemType(components.get(i));
+        }
+        return itemTypes;
+    }
+
+    @Override
+    protected void applyItemTypes(@NonNull List<BaseCell> components, @NonNull int[] itemTypes) {
+        for (int i = 0, size = components.size(); i < size; i++) {
+            components.get(i).setCachedItemType(itemTypes[i], mItemTypeGeneration);
+        }
+    }
+
+    /**
+     * Called on main thread, or on a worker thread by {@link #prepareItemTypes(List)}, so it only reads the cell and
+     * thread safe registries.
+     */
+    private int resolveItemType(BaseCell item) {
         // if the item is a keyType, which means item.type is not the key
         int version = mViewManager != null ? mViewManager.getViewVersion(item.stringType) : 0;
         if (!TextUtils.isEmpty(item.typeKey)) {
             // we should use getTypeKey()
             String typeKey = item.typeKey + version;
-            if (!mStrKeys.containsKey(typeKey)) {
-                int newType = mTypeId.getAndIncrement();
-                mStrKeys.put(typeKey, newType);
-                mId2Types.put(newType, item.stringType);
-            }
-
-            return mStrKeys.get(typeKey).intValue();
+            return registerItemType(typeKey, item.stringType);
         } else {
             // otherwise, use item.type as identity key
-            // note, this now only be executed in MainThread, atomic not actually needed
             String stringType = item.stringType + version;
-            if (!mStrKeys.containsKey(stringType)) {
-                int newType = mTypeId.getAndIncrement();
-                mStrKeys.put(stringType, newType);
-                mId2Types.put(newType, item.stringType);
+            return registerItemType(stringType, item.stringType);
+        }
+    }
+
+    private int registerItemType(String key, String stringType) {
+        if (mSharedViewPool != null) {
+            return mSharedViewPool.registerItemType(key, stringType);
+        }
+        Integer type = mStrKeys.get(key);
+        if (type != null) {
+            return type;
+        }
+        synchronized (mId2Types) {
+            type = mStrKeys.get(key);
+            if (type == null) {
+                type = mTypeId.getAndIncrement();
+                mId2Types.put(type, stringType);
+                mStrKeys.put(key, type);
             }
-            return mStrKeys.get(stringType).intValue();
+            return type;
         }
     }
 
 
     @Override
     public long getItemId(int position) {
-        return getItemByPosition(position).objectId;
+        return getResolvedStableId(getItemByPosition(position));
+    }
+
+    @Override
+    public int getPositionByStableId(long stableId) {
+        BaseCell cell = hasStableIds() ? mStableIds.get(stableId) : null;
+        return cell != null ? getPositionByItem(cell, cell.parent) : RecyclerView.NO_POSITION;
+    }
+
+    private void registerStableIds(List<BaseCell> cells) {
+        if (!hasStableIds() || cells == null) {
+            return;
+        }
+        for (int i = 0, size = cells.size(); i < size; i++) {
+            BaseCell cell = cells.get(i);
+            if (cell == null) {
+                continue;
+            }
+            long stableId = getResolvedStableId(cell);
+            BaseCell exist = mStableIds.get(stableId);
+            if (exist == cell) {
+                continue;
+            }
+            stableId = cell.getStableId();
+            exist = mStableIds.get(stableId);
+            // duplicated card id or cell id, derive a new one deterministically
+            while (exist != null) {
+                stableId = stableId * 31 + 17;
+                if (stableId == RecyclerView.NO_ID) {
+                    stableId = 0;
+                }
+                exist = mStableIds.get(stableId);
+            }
+            if (stableId != cell.getStableId()) {
+                mResolvedIds.put(cell, stableId);
+            } else {
+                mResolvedIds.remove(cell);
+            }
+            mStableIds.put(stableId, cell);
+        }
+    }
+
+    private long getResolvedStableId(@NonNull BaseCell cell) {
+        if (!mResolvedIds.isEmpty()) {
+            Long stableId = mResolvedIds.get(cell);
+            if (stableId != null) {
+                return stableId;
+            }
+        }
+        return cell.getStableId();
+    }
+
+    /**
+     * @param start position of the first cell
+     * @param cells cells at contiguous positions from start
+     */
+    private void indexComponents(int start, List<BaseCell> cells) {
+        if (cells == null) {
+            return;
+        }
+        mIdCellIndex.addAll(start, cells);
+        mTypeCellIndex.addAll(start, cells);
+        registerStableIds(cells);
+    }
+
+    private void unindexComponents(List<BaseCell> cells) {
+        if (cells == null) {
+            return;
+        }
+        mIdCellIndex.removeAll(cells);
+        mTypeCellIndex.removeAll(cells);
+        unregisterStableIds(cells);
+    }
+
+    private void indexCard(int cardIdx, Card card) {
+        if (card != null) {
+            mIdCardIndex.add(cardIdx, card);
+        }
+    }
+
+    private void unindexCard(Card card) {
+        if (card != null) {
+            mIdCardIndex.remove(card);
+        }
+    }
+
+    private void unregisterStableIds(List<BaseCell> cells) {
+        if (!hasStableIds() || cells == null) {
+            return;
+        }
+        for (int i = 0, size = cells.size(); i < size; i++) {
+            BaseCell cell = cells.get(i);
+            if (cell == null) {
+                continue;
+            }
+            long stableId = getResolvedStableId(cell);
+            if (mStableIds.get(stableId) == cell) {
+                mStableIds.remove(stableId);
+            }
+            mResolvedIds.remove(cell);
+        }
     }
 
     @Override
@@ -271,17 +533,82 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             }
         }
 
+        int lastSize = data.size();
+        int lastCardSize = rangeCards.size();
+        if (lastSize == 0) {
+            mStableIds.clear();
+            mResolvedIds.clear();
+            mIdCellIndex.clear();
+            mTypeCellIndex.clear();
+            mIdCardIndex.clear();
+        }
+
         List<LayoutHelper> layoutHelpers = super.transformCards(cards, data, rangeCards);
 
         // clean cache after used
         mIdCardCache.clear();
 
+        indexComponents(lastSize, data.subList(lastSize, data.size()));
+        for (int i = lastCardSize, size = rangeCards.size(); i < size; i++) {
+            indexCard(i, rangeCards.get(i).second);
+        }
+
         return layoutHelpers;
     }
 
+    @Nullable
+    @Override
+    protected List<LayoutHelper> getChunkHelpers(@NonNull Card card, int itemCount) {
+        int chunkSize = getChunkSize();
+        if (chunkSize <= 0 || itemCount <= chunkSize || itemCount != card.mCells.size()) {
+            // cells hidden by "forLabel" are not split
+            return null;
+        }
+        return card.getChunkLayoutHelpers(chunkSize);
+    }
+
+    @Override
+    protected boolean canUpdateAlone(@NonNull Card card) {
+        if (card.style != null && !TextUtils.isEmpty(card.style.forLabel)) {
+            return false;
+        }
+        if (!TextUtils.isEmpty(card.id)) {
+            // other cards may be hidden or shown by this card through "forLabel"
+            for (int i = 0, size = mCards.size(); i < size; i++) {
+                Card other = mCards.get(i).second;
+                if (other.style != null && card.id.equals(other.style.forLabel)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void onComponentsReplaced(@NonNull List<BaseCell> removed, @NonNull List<BaseCell> added) {
+        unindexComponents(removed);
+        if (!added.isEmpty()) {
+            indexComponents(getPositionByItem(added.get(0)), added);
+        }
+    }
+
+    @Override
+    protected void onStateApplied(@NonNull AdapterState<Card, BaseCell> state) {
+        mStableIds.clear();
+        mResolvedIds.clear();
+        mIdCellIndex.clear();
+        mTypeCellIndex.clear();
+        mIdCardIndex.clear();
+        indexComponents(0, getComponentsView());
+        List<Card> cards = getGroupsView();
+        for (int i = 0, size = cards.size(); i < size; i++) {
+            indexCard(i, cards.get(i));
+        }
+    }
+
     @Deprecated
     public int findFirstPositionOfCell(int type) {
-        List<BaseCell> data = getComponents();
+        List<BaseCell> data = getComponentsView();
         int targetPosition = -1;
         if (data == null || data.isEmpty()) {
             targetPosition = -1;
@@ -298,24 +625,16 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
 
     @Override
     public int findFirstPositionOfCell(String type) {
-        List<BaseCell> data = getComponents();
-        int targetPosition = -1;
-        if (type == null || data == null || data.isEmpty()) {
-            targetPosition = -1;
-        } else {
-            for (int i = 0, size = data.size(); i < size; i++) {
-                if (type.equals(data.get(i).stringType)) {
-                    targetPosition = i;
-                    break;
-                }
-            }
+        if (type == null) {
+            return -1;
         }
-        return targetPosition;
+        BaseCell cell = mTypeCellIndex.getFirst(type);
+        return cell != null ? getPositionByItem(cell) : -1;
     }
 
     @Deprecated
     public int findLastPositionOfCell(int type) {
-        List<BaseCell> data = getComponents();
+        List<BaseCell> data = getComponentsView();
         int targetPosition = -1;
         if (data == null || data.isEmpty()) {
             targetPosition = -1;
@@ -332,30 +651,21 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
 
     @Override
     public int findLastPositionOfCell(String type) {
-        List<BaseCell> data = getComponents();
-        int targetPosition = -1;
-        if (type == null || data == null || data.isEmpty()) {
-            targetPosition = -1;
-        } else {
-            for (int i = data.size() - 1; i >= 0; i--) {
-                if (type.equals(data.get(i).stringType)) {
-                    targetPosition = i;
-                    break;
-                }
-            }
+        if (type == null) {
+            return -1;
         }
-        return targetPosition;
+        BaseCell cell = mTypeCellIndex.getLast(type);
+        return cell != null ? getPositionByItem(cell) : -1;
     }
 
     @Override
     public Card getCardById(String id) {
-        List<Card> cards = getGroups();
-        for (int i = 0, size = cards.size(); i < size; i++) {
-            if (cards.get(i).id.equals(id)) {
-                return cards.get(i);
-            }
-        }
-        return null;
+        return id != null ? mIdCardIndex.getFirst(id) : null;
+    }
+
+    @Override
+    public BaseCell findComponentById(String id) {
+        return id != null ? mIdCellIndex.getFirst(id) : null;
     }
 
     @Override
@@ -364,12 +674,9 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             return Range.create(0, 0);
         }
 
-        List<Card> cards = getGroups();
-        for (int i = 0, size = cards.size(); i < size; i++) {
-            Card c = cards.get(i);
-            if (id.equals(c.id)) {
-                return getCardRange(c);
-            }
+        Card card = mIdCardIndex.getFirst(id);
+        if (card != null) {
+            return getCardRange(card);
         }
         return Range.create(0, 0);
     }
@@ -421,6 +728,8 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                 mCards.clear();
                 mCards.addAll(newCards);
                 mData.remove(component);
+                unindexComponents(Collections.singletonList(component));
+                onDataChanged();
                 notifyItemRemoved(removePosition);
                 int last = mLayoutManager.findLastVisibleItemPosition();
                 notifyItemRangeChanged(removePosition, last - removePosition);
@@ -451,9 +760,12 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                 }
             }
             group.removed();
+            unindexCard(group);
             mCards.clear();
             mCards.addAll(newCards);
             mData.removeAll(group.getCells());
+            unindexComponents(group.getCells());
+            onDataChanged();
             notifyItemRangeRemoved(removePosition, removeItemCount);
             int last = mLayoutManager.findLastVisibleItemPosition();
             notifyItemRangeChanged(removePosition, last - removePosition);
@@ -464,6 +776,7 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
     public void insertComponents(int pos, List<BaseCell> components) {
         if (mData != null && mData.size() > 0 && components != null && !components.isEmpty() && pos >= 0) {
             int newItemSize = components.size();
+            int insertPosition = Math.min(pos, mData.size());
             if (mCards != null) {
                 List<Pair<Range<Integer>, Card>> newCards = new ArrayList<>();
                 for (int i = 0, size = mCards.size(); i < size; i++) {
@@ -497,6 +810,8 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                     mData.add(components.get(i));
                 }
             }
+            indexComponents(insertPosition, components);
+            onDataChanged();
             notifyItemRangeInserted(pos, newItemSize);
         }
     }
@@ -510,6 +825,7 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             int newItemSize = 0;
             int lastEnd = 0;
             int insertPosition = 0;
+            int insertCardIdx = idx >= 0 && idx < mCards.size() ? idx : mCards.size();
 
             if (idx >= 0 && idx < mCards.size()) {
                 for (int i = 0, size = mCards.size(); i < size; i++) {
@@ -563,6 +879,11 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             mCards.clear();
             mCards.addAll(newCards);
             mData.addAll(insertPosition, newData);
+            for (int i = 0, size = group.size(); i < size; i++) {
+                indexCard(insertCardIdx + i, group.get(i));
+            }
+            indexComponents(insertPosition, newData);
+            onDataChanged();
             notifyItemRangeInserted(insertPosition, newItemSize);
         }
     }
@@ -608,6 +929,9 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                 }
                 mData.removeAll(oldComponent);
                 mData.addAll(index, newComponent);
+                unindexComponents(oldComponent);
+                indexComponents(index, newComponent);
+                onDataChanged();
                 int oldSize = oldComponent.size();
                 int newSize = newComponent.size();
                 notifyItemRangeChanged(index, Math.max(oldSize, newSize));
@@ -622,6 +946,7 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             List<BaseCell> newComponent = newGroup.getCells();
             int index = mData.indexOf(oldComponent.get(0));
             if (index >= 0) {
+                int cardIdx = -1;
                 if (mCards != null) {
                     List<Pair<Range<Integer>, Card>> newCards = new ArrayList<>();
                     int diff = 0;
@@ -633,6 +958,7 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                             //do nothing
                             newCards.add(pair);
                         } else if (start <= index && index < end) {
+                            cardIdx = i;
                             diff = newComponent.size() - oldComponent.size();
                             Pair<Range<Integer>, Card> newPair = new Pair<>(Range.create(start, end + diff), newGroup);
                             newCards.add(newPair);
@@ -648,6 +974,11 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
                 newGroup.added();
                 mData.removeAll(oldComponent);
                 mData.addAll(index, newComponent);
+                unindexCard(oldGroup);
+                indexCard(cardIdx, newGroup);
+                unindexComponents(oldComponent);
+                indexComponents(index, newComponent);
+                onDataChanged();
                 int oldSize = oldComponent.size();
                 int newSize = newComponent.size();
                 notifyItemRangeChanged(index, Math.max(oldSize, newSize));
@@ -662,5 +993,164 @@ public class PojoGroupBasicAdapter extends GroupBasicAdapter<Card, BaseCell> {
             mCards.get(i).second.removed();
         }
     }
-}
 
+    /**
+     * Items by key, items of a key are kept in order of adapter positions, so lookups return the first or the last one
+     * by position. Items are added in contiguous blocks at a known position, only positions of items already indexed
+     * are looked up to find where a block goes.
+     */
+    private abstract static class PositionIndex<T> {
+
+        private final Map<String, List<T>> mItems = new HashMap<>(64);
+
+        /**
+         * @return key of item, null if the item is not indexed
+         */
+        @Nullable
+        abstract String keyOf(@NonNull T item);
+
+        /**
+         * @return current position of an indexed item
+         */
+        abstract int positionOf(@NonNull T item);
+
+        @Nullable
+        T getFirst(String key) {
+            List<T> items = mItems.get(key);
+            return items != null ? items.get(0) : null;
+        }
+
+        @Nullable
+        T getLast(String key) {
+            List<T> items = mItems.get(key);
+            return items != null ? items.get(items.size() - 1) : null;
+        }
+
+        void add(int position, @Nullable T item) {
+            String key = item != null ? keyOf(item) : null;
+            if (key == null) {
+                return;
+            }
+            List<T> indexed = mItems.get(key);
+            if (indexed == null) {
+                indexed = new ArrayList<>(2);
+                mItems.put(key, indexed);
+            }
+            indexed.add(insertionIndex(indexed, position), item);
+        }
+
+        /**
+         * @param start position of the first item
+         * @param items items at contiguous positions from start
+         */
+        void addAll(int start, @NonNull List<T> items) {
+            if (items.size() == 1) {
+                add(start, items.get(0));
+                return;
+            }
+            // items of a key in the block stay together, no indexed item is between them
+            Map<String, List<T>> blocks = new HashMap<>();
+            for (int i = 0, size = items.size(); i < size; i++) {
+                T item = items.get(i);
+                String key = item != null ? keyOf(item) : null;
+                if (key == null) {
+                    continue;
+                }
+                List<T> block = blocks.get(key);
+                if (block == null) {
+                    block = new ArrayList<>();
+                    blocks.put(key, block);
+                }
+                block.add(item);
+            }
+            for (Map.Entry<String, List<T>> entry : blocks.entrySet()) {
+                List<T> indexed = mItems.get(entry.getKey());
+                if (indexed == null) {
+                    mItems.put(entry.getKey(), entry.getValue());
+                } else {
+                    indexed.addAll(insertionIndex(indexed, start), entry.getValue());
+                }
+            }
+        }
+
+        void remove(@Nullable T item) {
+            String key = item != null ? keyOf(item) : null;
+            List<T> indexed = key != null ? mItems.get(key) : null;
+            if (indexed == null) {
+                return;
+            }
+            for (int i = 0, size = indexed.size(); i < size; i++) {
+                if (indexed.get(i) == item) {
+                    indexed.remove(i);
+                    break;
+                }
+            }
+            if (indexed.isEmpty()) {
+                mItems.remove(key);
+            }
+        }
+
+        void removeAll(@NonNull List<T> items) {
+            if (items.size() <= 1) {
+                if (!items.isEmpty()) {
+                    remove(items.get(0));
+                }
+                return;
+            }
+            Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+            Set<String> keys = new HashSet<>();
+            for (int i = 0, size = items.size(); i < size; i++) {
+                T item = items.get(i);
+                String key = item != null ? keyOf(item) : null;
+                if (key != null) {
+                    removed.add(item);
+                    keys.add(key);
+                }
+            }
+            for (String key : keys) {
+                List<T> indexed = mItems.get(key);
+                if (indexed == null) {
+                    continue;
+                }
+                int count = 0;
+                for (int i = 0, size = indexed.size(); i < size; i++) {
+                    T item = indexed.get(i);
+                    if (!removed.contains(item)) {
+                        indexed.set(count++, item);
+                    }
+                }
+                if (count == 0) {
+                    mItems.remove(key);
+                } else {
+                    indexed.subList(count, indexed.size()).clear();
+                }
+            }
+        }
+
+        void clear() {
+            mItems.clear();
+        }
+
+        /**
+         * @return index of the first indexed item after position
+         */
+        private int insertionIndex(@NonNull List<T> indexed, int position) {
+            int high = indexed.size();
+            if (high == 0 || positionOf(indexed.get(high - 1)) < position) {
+                // appended, such as a new page of a feed
+                return high;
+            }
+            int low = 0;
+            high--;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (positionOf(indexed.get(mid)) < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -146,6 +146,22 @@ public class Style {
         this(DEFAULT_MARGIN);
     }
 
+    /**
+     * @return hash of fields used to build layoutHelpers, layoutHelper of a card is rebuilt when it changes
+     */
+    public int layoutHash() {
+        int hash = bgColor;
+        hash = 31 * hash + (bgImgUrl != null ? bgImgUrl.hashCode() : 0);
+        hash = 31 * hash + zIndex;
+        hash = 31 * hash + Arrays.hashCode(margin);
+        hash = 31 * hash + Arrays.hashCode(padding);
+        hash = 31 * hash + width;
+        hash = 31 * hash + height;
+        hash = 31 * hash + Float.floatToIntBits(aspectRatio);
+        hash = 31 * hash + System.identityHashCode(extras);
+        return hash;
+    }
+
     public Style(float[] defaultMargin) {
         int size = Math.min(defaultMargin.length, this.margin.length);
         for (int i = 0; i < size; i++) {
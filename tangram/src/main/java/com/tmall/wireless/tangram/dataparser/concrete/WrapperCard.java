@@ -34,6 +34,9 @@ import com.alibaba.android.vlayout.layout.RangeGridLayoutHelper;
 import com.tmall.wireless.tangram.structure.BaseCell;
 import com.tmall.wireless.tangram.structure.card.GridCard;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -88,4 +91,9 @@ public class WrapperCard extends Card {
 
         return layoutHelper;
     }
+
+    @Override
+    protected void copyStubLayout(@NonNull JSONObject cellStyle, @NonNull JSONObject stubStyle) throws JSONException {
+        mCard.copyStubLayout(cellStyle, stubStyle);
+    }
 }
@@ -344,7 +344,7 @@ public class SwipeItemTouchListener implements RecyclerView.OnItemTouchListener
         if (childView != null) {
             int position = layoutManager.getPosition(childView);
             currCardIdx = mGroupBasicAdapter.findCardIdxFor(position);
-            List<Card> groups = mGroupBasicAdapter.getGroups();
+            List<Card> groups = mGroupBasicAdapter.getGroupsView();
 
             if (currCardIdx >= groups.size() || currCardIdx < 0) {
                 Log.e(TAG, "onScroll: group size >= cardIdx");
@@ -30,11 +30,14 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Pair;
 import android.util.SparseArray;
 import android.view.View;
 import android.widget.ImageView;
 import com.tmall.wireless.tangram.Engine;
 import com.tmall.wireless.tangram.MVHelper;
+import com.tmall.wireless.tangram.core.adapter.VersionedItem;
 import com.tmall.wireless.tangram.core.service.ServiceManager;
 import com.tmall.wireless.tangram.dataparser.concrete.Card;
 import com.tmall.wireless.tangram.dataparser.concrete.ComponentLifecycle;
@@ -47,20 +50,31 @@ import com.tmall.wireless.tangram.util.BDE;
 import com.tmall.wireless.tangram.util.IInnerImageSetter;
 import com.tmall.wireless.tangram.util.ImageUtils;
 import com.tmall.wireless.tangram.util.LifeCycleProviderImpl;
+import com.tmall.wireless.tangram.util.Utils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
  * Created by mikeafc on 16/4/25.
  */
-public class BaseCell<V extends View> extends ComponentLifecycle implements View.OnClickListener {
+public class BaseCell<V extends View> extends ComponentLifecycle implements View.OnClickListener, VersionedItem {
 
     public static final BaseCell NaN = new NanBaseCell();
 
     private static AtomicLong sIdGen = new AtomicLong();
 
+    /**
+     * Use {@link #getStableId()} instead, ids generated by this flag change on every parse.
+     */
+    @Deprecated
     public static boolean sIsGenIds = false;
 
+    private static final long NO_STABLE_ID = -1;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     /**
      * cell's type, use {@link #stringType} instead
      */
@@ -114,10 +128,37 @@ public class BaseCell<V extends View> extends ComponentLifecycle implements View
     public String typeKey;
 
     /**
-     * inner use, item id for adapter.
+     * inner use, item id for adapter. Use {@link #getStableId()} instead.
      */
+    @Deprecated
     public final long objectId;
 
+    private long mStableId = NO_STABLE_ID;
+
+    private int mItemType = -1;
+
+    private int mItemTypeGeneration = -1;
+
+    private int mLayoutDelta = -1;
+
+    private int mContentVersion;
+
+    private int mPrecomputedHeight = -1;
+
+    private float mPrecomputedRatio = Float.NaN;
+
+    private int mMeasuredVersion = -1;
+
+    private int mMeasuredWidth = -1;
+
+    private int mMeasuredHeight = -1;
+
+    private String mUniqueId;
+
+    private String mUniqueIdParentId;
+
+    private int mUniqueIdPos;
+
     /**
      * the original json data
      */
@@ -162,8 +203,187 @@ public class BaseCell<V extends View> extends ComponentLifecycle implements View
         }
     }
 
+    /**
+     * Item id for adapter, derived from parent card's id, cell's id (or its position in card if no id) and type. So the
+     * same cell parsed from the same data gets the same id across {@link Engine#setData}. Calculated on first call and
+     * kept for the lifetime of this cell. Adapter assigns other item ids to cells with duplicated ids, without changing
+     * this one.
+     *
+     * @return the stable id, never be {@link androidx.recyclerview.widget.RecyclerView#NO_ID}
+     */
+    public long getStableId() {
+        if (mStableId == NO_STABLE_ID) {
+            String cardKey = parent != null && !TextUtils.isEmpty(parent.id) ? parent.id
+                : (!TextUtils.isEmpty(parentId) ? parentId : (parent != null ? parent.stringType : null));
+            long hash = hash(FNV_OFFSET_BASIS, cardKey);
+            hash = !TextUtils.isEmpty(id) ? hash(hash, id) : hash(hash, "#" + pos);
+            hash = hash(hash, stringType);
+            mStableId = hash == NO_STABLE_ID ? 0 : hash;
+        }
+        return mStableId;
+    }
+
+    /**
+     * inner use, item type resolved by adapter.
+     *
+     * @param generation current generation of item types in adapter
+     * @return cached item type, or -1 if not resolved in this generation
+     */
+    public int getCachedItemType(int generation) {
+        return mItemTypeGeneration == generation ? mItemType : -1;
+    }
+
+    /**
+     * inner use, id of this cell unique in page, composed of id of parent card and position in it.
+     *
+     * @return the id, rebuilt only when parent id or position changes
+     */
+    public String getUniqueId() {
+        String parentId = parent == null ? null : parent.id;
+        if (mUniqueId == null || mUniqueIdPos != pos
+            || (mUniqueIdParentId != parentId && !TextUtils.equals(mUniqueIdParentId, parentId))) {
+            mUniqueId = (parent == null ? "null" : parentId) + "_" + pos;
+            mUniqueIdParentId = parentId;
+            mUniqueIdPos = pos;
+        }
+        return mUniqueId;
+    }
+
+    /**
+     * inner use, cache item type resolved by adapter.
+     */
+    public void setCachedItemType(int itemType, int generation) {
+        this.mItemType = itemType;
+        this.mItemTypeGeneration = generation;
+    }
+
+    /**
+     * inner use, distance from the top of previous cell to the top of this cell measured in last layout, kept across
+     * {@link Engine#setData} as long as the cell is kept.
+     *
+     * @return the distance, or -1 if not measured
+     */
+    public int getLayoutDelta() {
+        return mLayoutDelta;
+    }
+
+    /**
+     * inner use, record distance from the top of previous cell to the top of this cell.
+     */
+    public void setLayoutDelta(int layoutDelta) {
+        this.mLayoutDelta = layoutDelta;
+    }
+
+    /**
+     * Precompute the height of this cell from data only, called after the cell is parsed. A height declared by
+     * {@link Style#height} is exact, an {@link Style#aspectRatio} or the size of {@link #getSizeImageUrl()} gives the
+     * ratio of width to height.
+     */
+    public void precomputeSize() {
+        mPrecomputedHeight = -1;
+        mPrecomputedRatio = Float.NaN;
+        if (style != null && style.height >= 0) {
+            mPrecomputedHeight = style.height;
+        } else if (style != null && !Float.isNaN(style.aspectRatio) && style.aspectRatio > 0) {
+            mPrecomputedRatio = style.aspectRatio;
+        } else {
+            Pair<Integer, Integer> imageSize = Utils.getImageSize(getSizeImageUrl());
+            if (imageSize != null && imageSize.first > 0 && imageSize.second > 0) {
+                mPrecomputedRatio = (float) imageSize.first / imageSize.second;
+            }
+        }
+    }
+
+    /**
+     * Override this if the size of cell is totally determined by an image, so that its height is known before the
+     * image is loaded.
+     *
+     * @return url of the image, which carries size like '-372-441.png' or '_100x100.jpg'
+     */
+    @Nullable
+    protected String getSizeImageUrl() {
+        return null;
+    }
+
+    /**
+     * @return exact height precomputed by {@link #precomputeSize()}, or -1 if unknown
+     */
+    public int getPrecomputedHeight() {
+        return mPrecomputedHeight;
+    }
+
+    /**
+     * @return ratio of width to height precomputed by {@link #precomputeSize()}, or {@link Float#NaN} if unknown
+     */
+    public float getPrecomputedRatio() {
+        return mPrecomputedRatio;
+    }
+
+    /**
+     * @return version of content, changes every time {@link #invalidateSize()} is called, a biz param is added, the
+     * cell is parsed or notified as changed by position. A view bound again to this cell of the same version is not
+     * mounted again, so cells edited in place should be updated by
+     * {@link com.tmall.wireless.tangram.TangramEngine#update(BaseCell)}, a refresh of the whole page does not mount
+     * them again.
+     */
+    @Override
+    public int getContentVersion() {
+        return mContentVersion;
+    }
+
+    @Override
+    public void invalidateContentVersion() {
+        mContentVersion++;
+    }
+
+    /**
+     * Called when content of this cell changes, drops the measured size so that it is measured again.
+     */
+    public void invalidateSize() {
+        mContentVersion++;
+        mMeasuredVersion = -1;
+        mMeasuredWidth = -1;
+        mMeasuredHeight = -1;
+    }
+
+    /**
+     * inner use, record height measured in last layout with the width resolved by parent card.
+     */
+    public void cacheMeasuredSize(int width, int height) {
+        mMeasuredVersion = mContentVersion;
+        mMeasuredWidth = width;
+        mMeasuredHeight = height;
+    }
+
+    /**
+     * inner use, the height measured in last layout.
+     *
+     * @param width current width resolved by parent card
+     * @return the cached height, or -1 if content or width changes since then
+     */
+    public int getCachedHeight(int width) {
+        if (mMeasuredVersion == mContentVersion && mMeasuredWidth == width && width > 0) {
+            return mMeasuredHeight;
+        }
+        return -1;
+    }
+
+    private static long hash(long hash, @Nullable String value) {
+        if (value != null) {
+            for (int i = 0, length = value.length(); i < length; i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // separator between fields, so that ("ab", "c") differs from ("a", "bc")
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
     public void addBizParam(String key, Object value) {
         bizParaMap.put(key, value);
+        mContentVersion++;
     }
 
     public Map<String, Object> getAllBizParams() {
@@ -118,6 +118,17 @@ public class FixCard extends OneItemCard {
         public int x = 0;
         public int y = 0;
 
+        @Override
+        public int layoutHash() {
+            int hash = super.layoutHash();
+            hash = 31 * hash + alignType;
+            hash = 31 * hash + showType;
+            hash = 31 * hash + (sketchMeasure ? 1 : 0);
+            hash = 31 * hash + x;
+            hash = 31 * hash + y;
+            return hash;
+        }
+
         @Override
         public void parseWith(JSONObject data) {
             super.parseWith(data);
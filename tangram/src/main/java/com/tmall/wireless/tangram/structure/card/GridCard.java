@@ -28,11 +28,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
-import android.view.View;
 
 import com.alibaba.android.vlayout.LayoutHelper;
 import com.alibaba.android.vlayout.Range;
-import com.alibaba.android.vlayout.layout.BaseLayoutHelper;
 import com.alibaba.android.vlayout.layout.GridLayoutHelper;
 import com.alibaba.android.vlayout.layout.RangeGridLayoutHelper;
 import com.alibaba.android.vlayout.layout.RangeGridLayoutHelper.GridRangeStyle;
@@ -40,12 +38,15 @@ import com.tmall.wireless.tangram.MVHelper;
 import com.tmall.wireless.tangram.dataparser.concrete.Card;
 import com.tmall.wireless.tangram.dataparser.concrete.Style;
 import com.tmall.wireless.tangram.structure.BaseCell;
-import com.tmall.wireless.tangram.support.CardSupport;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -62,6 +63,21 @@ public class GridCard extends Card {
 
     private int mColumn = 0;
 
+    private final SpanCache mSpanCache = new SpanCache();
+
+    private int[] mChildLowers = new int[0];
+
+    private int[] mChildUppers = new int[0];
+
+    private Card[] mChildCards = new Card[0];
+
+    private boolean mChildRangesDirty = true;
+
+    /*
+     * span lookups of chunks last converted, their start offsets are dropped when cells before them change
+     */
+    private ChunkSpanSizeLookup[] mChunkLookups = new ChunkSpanSizeLookup[0];
+
     public GridCard() {
     }
 
@@ -93,6 +109,8 @@ public class GridCard extends Card {
             int endOffset = mCells.indexOf(subCells.get(subCells.size() - 1));
             Range range = Range.create(startOffset, endOffset);
             mChildren.put(range, card);
+            mChildRangesDirty = true;
+            invalidateLayoutHelper();
         }
     }
 
@@ -101,33 +119,107 @@ public class GridCard extends Card {
         if (anchorCard == null) {
             return;
         }
+        ensureChildRanges();
         ConcurrentHashMap<Range<Integer>, Card> newChildren = new ConcurrentHashMap<>();
         boolean startOffset = false;
-        for (Map.Entry<Range<Integer>, Card> entry : mChildren.entrySet()) {
-            Range<Integer> key = entry.getKey();
-            Card child = entry.getValue();
+        // children are walked by their offsets, so that only those after the anchor are shifted
+        for (int i = 0; i < mChildCards.length; i++) {
+            Card child = mChildCards[i];
             if (child == anchorCard) {
-                Range<Integer> newKey = Range.create(key.getLower().intValue(),
-                        key.getUpper().intValue() + offset);
-                newChildren.put(newKey, child);
+                newChildren.put(Range.create(mChildLowers[i], mChildUppers[i] + offset), child);
                 startOffset = true;
                 continue;
             }
             if (startOffset) {
-                Range<Integer> newKey = Range.create(key.getLower().intValue() + offset,
-                        key.getUpper().intValue() + offset);
-                newChildren.put(newKey, child);
+                newChildren.put(Range.create(mChildLowers[i] + offset, mChildUppers[i] + offset), child);
             } else {
-                newChildren.put(key, child);
+                newChildren.put(Range.create(mChildLowers[i], mChildUppers[i]), child);
             }
         }
         mChildren.clear();
         mChildren.putAll(newChildren);
+        mChildRangesDirty = true;
+        invalidateLayoutHelper();
     }
 
     @Override
     public void clearChildMap() {
         mChildren.clear();
+        mChildRangesDirty = true;
+        invalidateLayoutHelper();
+    }
+
+    /**
+     * Find the nested card containing a cell, by binary search on offsets of children.
+     *
+     * @param offset offset of cell in this card
+     * @return the nested card, or null if the cell belongs to this card itself
+     */
+    @Nullable
+    public Card findChildCardByOffset(int offset) {
+        ensureChildRanges();
+        int low = 0;
+        int high = mChildLowers.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mChildLowers[mid] > offset) {
+                high = mid - 1;
+            } else if (mChildUppers[mid] < offset) {
+                low = mid + 1;
+            } else {
+                return mChildCards[mid];
+            }
+        }
+        return null;
+    }
+
+    private void ensureChildRanges() {
+        if (!mChildRangesDirty && mChildCards.length == mChildren.size()) {
+            return;
+        }
+        // ranges of children never overlap, sorting them by lower bounds sorts them by upper bounds too
+        List<Map.Entry<Range<Integer>, Card>> entries = new ArrayList<>(mChildren.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Range<Integer>, Card>>() {
+            @Override
+            public int compare(Map.Entry<Range<Integer>, Card> lhs, Map.Entry<Range<Integer>, Card> rhs) {
+                return lhs.getKey().getLower().compareTo(rhs.getKey().getLower());
+            }
+        });
+        int size = entries.size();
+        mChildLowers = new int[size];
+        mChildUppers = new int[size];
+        mChildCards = new Card[size];
+        for (int i = 0; i < size; i++) {
+            Map.Entry<Range<Integer>, Card> entry = entries.get(i);
+            mChildLowers[i] = entry.getKey().getLower();
+            mChildUppers[i] = entry.getKey().getUpper();
+            mChildCards[i] = entry.getValue();
+        }
+        mChildRangesDirty = false;
+    }
+
+    @Override
+    protected void onCellsChanged(int offset) {
+        super.onCellsChanged(offset);
+        invalidateSpans(offset);
+    }
+
+    @Override
+    public void onCellUpdated(@NonNull BaseCell cell) {
+        int offset = mCells.indexOf(cell);
+        if (offset >= 0) {
+            // display or colspan may have changed
+            invalidateSpans(offset);
+        }
+    }
+
+    private void invalidateSpans(int offset) {
+        mSpanCache.invalidate(offset);
+        for (ChunkSpanSizeLookup lookup : mChunkLookups) {
+            if (lookup != null && lookup.mStartOffset > offset) {
+                lookup.mStartOffset = -1;
+            }
+        }
     }
 
     public void clearCells() {
@@ -145,6 +237,29 @@ public class GridCard extends Card {
         }
     }
 
+    /**
+     * Width of spans as {@link GridLayoutHelper} divides them. Grids with weights, auto expanded rows or child cards
+     * size cells by their rows, so their widths are not resolved.
+     */
+    @Override
+    public int resolveCellWidth(@NonNull BaseCell cell, int availableWidth) {
+        int totalColumn = getTotalColumn();
+        if (totalColumn <= 0 || !mChildren.isEmpty()) {
+            return -1;
+        }
+        int hGap = 0;
+        if (style instanceof GridStyle) {
+            GridStyle gridStyle = (GridStyle) style;
+            if (gridStyle.autoExpand || (gridStyle.cols != null && gridStyle.cols.length > 0)) {
+                return -1;
+            }
+            hGap = gridStyle.hGap;
+        }
+        int span = Math.max(1, Math.min(getCellSpanSize(cell, totalColumn), totalColumn));
+        int sizePerSpan = (getContentWidth(availableWidth) - (totalColumn - 1) * hGap) / totalColumn;
+        return sizePerSpan * span + (span - 1) * hGap;
+    }
+
     @Override
     public boolean isValid() {
         return super.isValid() && (mColumn > 0 || (style instanceof GridStyle && ((GridStyle) style).column > 0));
@@ -159,18 +274,127 @@ public class GridCard extends Card {
         gridHelper.setItemCount(mCells.size());
         gridHelper.setSpanCount(mColumn);
 
+        applyGridStyle(gridHelper, new CellSpanSizeLookup(mCells, getTotalColumn(), mSpanCache));
+
+        gridHelper.getRootRangeStyle().onClearChildMap();
+        convertChildLayoutHelper(gridHelper, this);
+
+        return gridHelper;
+    }
+
+    @Nullable
+    @Override
+    protected int[] computeChunkBounds(int chunkSize) {
+        // nested cards are styled by ranges of a single helper, background image would be repeated in each chunk
+        if (!mChildren.isEmpty() || style == null || !TextUtils.isEmpty(style.bgImgUrl)) {
+            return null;
+        }
+        int totalColumn = getTotalColumn();
+        if (totalColumn <= 0) {
+            return null;
+        }
+        return computeRowBounds(new CellSpanSizeLookup(mCells, totalColumn, mSpanCache), mCells.size(), totalColumn,
+            chunkSize);
+    }
+
+    /**
+     * Split cells into chunks of at least chunkSize cells, only between rows.
+     *
+     * @return offsets of the first cell of each chunk, followed by size
+     */
+    @NonNull
+    static int[] computeRowBounds(@NonNull CellSpanSizeLookup lookup, int size, int totalColumn, int chunkSize) {
+        int[] bounds = new int[size / chunkSize + 2];
+        int count = 0;
+        bounds[count++] = 0;
+        int chunkStart = 0;
+        int rowSpan = 0;
+        for (int i = 0; i < size; i++) {
+            int span = Math.max(1, Math.min(lookup.getSpanSize(i), totalColumn));
+            if (rowSpan + span > totalColumn) {
+                // a new row starts at i, chunks are only split between rows
+                rowSpan = 0;
+                if (i - chunkStart >= chunkSize && count < bounds.length - 1) {
+                    bounds[count++] = i;
+                    chunkStart = i;
+                }
+            }
+            rowSpan += span;
+        }
+        bounds[count++] = size;
+        if (count == bounds.length) {
+            return bounds;
+        }
+        int[] result = new int[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    @Nullable
+    @Override
+    protected LayoutHelper convertChunkLayoutHelper(int start, int end, @NonNull LayoutHelper[] chunks, int index) {
+        RangeGridLayoutHelper gridHelper = new RangeGridLayoutHelper(1, end - start);
+
+        gridHelper.setItemCount(end - start);
+        gridHelper.setSpanCount(mColumn);
+
+        ChunkSpanSizeLookup lookup = new ChunkSpanSizeLookup(mCells, getTotalColumn(), chunks, index, start, mSpanCache);
+        if (mChunkLookups.length != chunks.length) {
+            mChunkLookups = new ChunkSpanSizeLookup[chunks.length];
+        }
+        mChunkLookups[index] = lookup;
+        applyGridStyle(gridHelper, lookup);
+
+        gridHelper.getRootRangeStyle().onClearChildMap();
+
+        return gridHelper;
+    }
+
+    @Override
+    protected int getChunkGap() {
+        return style instanceof GridStyle ? ((GridStyle) style).vGap : 0;
+    }
+
+    @Override
+    protected void copyStubLayout(@NonNull JSONObject cellStyle, @NonNull JSONObject stubStyle) throws JSONException {
+        super.copyStubLayout(cellStyle, stubStyle);
+        if (cellStyle.has(CellSpanSizeLookup.KEY_COLSPAN)) {
+            stubStyle.put(CellSpanSizeLookup.KEY_COLSPAN, cellStyle.opt(CellSpanSizeLookup.KEY_COLSPAN));
+        }
+    }
+
+    static int getCellSpanSize(@Nullable BaseCell cell, int totalColumn) {
+        if (cell != null && cell.style != null && cell.style.extras != null) {
+            String display = cell.style.extras.optString(CellSpanSizeLookup.KEY_DISPLAY,
+                CellSpanSizeLookup.DISPLAY_INLINE);
+
+            if (TextUtils.equals(CellSpanSizeLookup.DISPLAY_BLOCK, display)) {
+                return totalColumn;
+            }
 
+            return cell.style.extras.optInt(CellSpanSizeLookup.KEY_COLSPAN, 1);
+        }
+
+        return 1;
+    }
+
+    private int getTotalColumn() {
+        if (style instanceof GridStyle && ((GridStyle) style).column > 0) {
+            return ((GridStyle) style).column;
+        }
+        return mColumn;
+    }
+
+    private void applyGridStyle(@NonNull RangeGridLayoutHelper gridHelper, @NonNull CellSpanSizeLookup lookup) {
         // update style
         if (style instanceof GridStyle) {
             GridStyle gridStyle = (GridStyle) style;
 
-            int totalColumn = mColumn;
             if (gridStyle.column > 0) {
-                totalColumn = gridStyle.column;
                 gridHelper.setSpanCount(gridStyle.column);
             }
 
-            gridHelper.setSpanSizeLookup(new CellSpanSizeLookup(mCells, totalColumn));
+            gridHelper.setSpanSizeLookup(lookup);
 
             gridHelper.setVGap(gridStyle.vGap);
             gridHelper.setHGap(gridStyle.hGap);
@@ -184,17 +408,12 @@ public class GridCard extends Card {
                 gridHelper.setAspectRatio(gridStyle.aspectRatio);
             }
         }
-
-        gridHelper.getRootRangeStyle().onClearChildMap();
-        convertChildLayoutHelper(gridHelper, this);
-
-        return gridHelper;
     }
 
     private void convertChildLayoutHelper(@Nullable RangeGridLayoutHelper gridHelper, GridCard parentCard) {
-        for (Map.Entry<Range<Integer>, Card> entry : parentCard.getChildren().entrySet()) {
-            Range<Integer> range = entry.getKey();
-            Card child = entry.getValue();
+        parentCard.ensureChildRanges();
+        for (int i = 0; i < parentCard.mChildCards.length; i++) {
+            Card child = parentCard.mChildCards[i];
             Style style = child.style;
             if (style instanceof GridStyle && child instanceof GridCard) {
                 final GridStyle gridStyle = (GridStyle) style;
@@ -211,7 +430,7 @@ public class GridCard extends Card {
                     rangeStyle.setSpanCount(totalColumn);
                 }
 
-                rangeStyle.setSpanSizeLookup(new CellSpanSizeLookup(gridCard.getCells(), totalColumn));
+                rangeStyle.setSpanSizeLookup(new CellSpanSizeLookup(gridCard.mCells, totalColumn, gridCard.mSpanCache));
 
                 rangeStyle.setVGap(gridStyle.vGap);
                 rangeStyle.setHGap(gridStyle.hGap);
@@ -231,30 +450,13 @@ public class GridCard extends Card {
                 rangeStyle.setPadding(style.padding[Style.MARGIN_LEFT_INDEX], style.padding[Style.MARGIN_TOP_INDEX],
                         style.padding[Style.MARGIN_RIGHT_INDEX], style.padding[Style.MARGIN_BOTTOM_INDEX]);
                 if (!TextUtils.isEmpty(style.bgImgUrl)) {
-                    if (serviceManager != null && serviceManager.getService(CardSupport.class) != null) {
-                        final CardSupport support = serviceManager.getService(CardSupport.class);
-                        rangeStyle.setLayoutViewBindListener(new BindListener(style) {
-                            @Override
-                            public void onBind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
-                                support.onBindBackgroundView(layoutView, gridCard);
-                            }
-                        });
-                        rangeStyle.setLayoutViewUnBindListener(new UnbindListener(style) {
-                            @Override
-                            public void onUnbind(View layoutView, BaseLayoutHelper baseLayoutHelper) {
-                                support.onUnbindBackgroundView(layoutView, gridCard);
-                            }
-                        });
-                    } else {
-                        rangeStyle.setLayoutViewBindListener(new BindListener(style));
-                        rangeStyle.setLayoutViewUnBindListener(new UnbindListener(style));
-                    }
+                    rangeStyle.setLayoutViewBindListener(gridCard.getBackgroundBindListener());
                 } else {
                     rangeStyle.setLayoutViewBindListener(null);
-                    rangeStyle.setLayoutViewUnBindListener(null);
                 }
+                rangeStyle.setLayoutViewUnBindListener(gridCard.getBackgroundUnbindListener());
 
-                gridHelper.addRangeStyle(range.getLower().intValue(), range.getUpper().intValue(), rangeStyle);
+                gridHelper.addRangeStyle(parentCard.mChildLowers[i], parentCard.mChildUppers[i], rangeStyle);
             }
         }
     }
@@ -291,6 +493,17 @@ public class GridCard extends Card {
 
         public float[] cols;
 
+        @Override
+        public int layoutHash() {
+            int hash = super.layoutHash();
+            hash = 31 * hash + vGap;
+            hash = 31 * hash + hGap;
+            hash = 31 * hash + (autoExpand ? 1 : 0);
+            hash = 31 * hash + column;
+            hash = 31 * hash + Arrays.hashCode(cols);
+            return hash;
+        }
+
         @Override
         public void parseWith(JSONObject data) {
             super.parseWith(data);
@@ -328,73 +541,186 @@ public class GridCard extends Card {
 
         private final int mTotalColumn;
 
+        @Nullable
+        private final SpanCache mSpanCache;
 
         public CellSpanSizeLookup(List<BaseCell> cells, int totalColumn) {
+            this(cells, totalColumn, null);
+        }
+
+        CellSpanSizeLookup(List<BaseCell> cells, int totalColumn, @Nullable SpanCache spanCache) {
             this.mCells = cells;
             this.mTotalColumn = totalColumn;
+            this.mSpanCache = spanCache;
         }
 
         @Override
         public int getSpanSize(int position) {
-            position = position - getStartPosition();
-            if (position < 0 || position >= mCells.size()) {
+            return getCellSpanSize(getCellOffset(position));
+        }
+
+        @Override
+        public int getSpanIndex(int position, int spanCount) {
+            int offset = getCellOffset(position);
+            if (mSpanCache == null || offset < 0 || offset >= mCells.size()) {
+                return super.getSpanIndex(position, spanCount);
+            }
+            return mSpanCache.getSpanIndex(this, offset, spanCount);
+        }
+
+        /**
+         * @param position position in adapter
+         * @return offset of cell in card
+         */
+        protected int getCellOffset(int position) {
+            return position - getStartPosition();
+        }
+
+        protected int getCellSpanSize(int offset) {
+            if (offset < 0 || offset >= mCells.size()) {
                 return 0;
             }
+            if (mSpanCache != null) {
+                return mSpanCache.getSpanSize(this, offset);
+            }
+            return computeCellSpanSize(offset);
+        }
 
-            BaseCell cell = mCells.get(position);
+        private int computeCellSpanSize(int offset) {
+            return getCellSpanSize(mCells.get(offset), mTotalColumn);
+        }
 
-            if (cell != null && cell.style != null && cell.style.extras != null) {
-                int column = cell.style.extras.optInt(KEY_COLSPAN, 1);
+    }
 
-                String display = cell.style.extras.optString(KEY_DISPLAY, DISPLAY_INLINE);
+    /**
+     * Span lookup of a chunk, offsets of cells are counted from the first chunk. The offset of the chunk's first cell
+     * is computed with chunk bounds, after cells are inserted into or removed from chunks before it in place, it is
+     * counted from item counts of those chunks until chunks are rebuilt.
+     */
+    public static class ChunkSpanSizeLookup extends CellSpanSizeLookup {
 
-                if (TextUtils.equals(DISPLAY_BLOCK, display)) {
-                    return mTotalColumn;
-                }
+        private final LayoutHelper[] mChunks;
 
-                return cell.style.extras.optInt(KEY_COLSPAN, 1);
-            }
+        private final int mIndex;
+
+        int mStartOffset;
 
-            return 1;
+        public ChunkSpanSizeLookup(List<BaseCell> cells, int totalColumn, LayoutHelper[] chunks, int index) {
+            this(cells, totalColumn, chunks, index, -1, null);
         }
 
+        ChunkSpanSizeLookup(List<BaseCell> cells, int totalColumn, LayoutHelper[] chunks, int index, int startOffset,
+            @Nullable SpanCache spanCache) {
+            super(cells, totalColumn, spanCache);
+            this.mChunks = chunks;
+            this.mIndex = index;
+            this.mStartOffset = startOffset;
+        }
+
+        @Override
+        protected int getCellOffset(int position) {
+            int offset = position - getStartPosition();
+            if (mStartOffset >= 0) {
+                return offset + mStartOffset;
+            }
+            for (int i = 0; i < mIndex; i++) {
+                offset += mChunks[i].getItemCount();
+            }
+            return offset;
+        }
     }
 
-    private static class ChildCardMap {
+    /**
+     * Span sizes and span indexes of cells in a card, shared by all lookups of the card. Values are computed on first
+     * query and kept until cells at or before them change, so that laying out each cell takes O(1) instead of walking
+     * all cells before it. Chunks start at rows, so span indexes counted from the first cell are the same as counted
+     * from the first cell of a chunk.
+     */
+    static final class SpanCache {
 
-        private int lastIndex = -1;
+        private int[] mSpanSizes = new int[0];
 
-        private int[] mOffsetMap = new int[1024];
+        private int[] mSpanIndexes = new int[0];
 
-        private Card[] mCardMap = new Card[1024];
+        // span already taken in the row after each cell, as GridLayoutHelper.SpanSizeLookup#getSpanIndex walks
+        private int[] mRowSpans = new int[0];
 
-        public void addChild(int startOffset, int endOffset, Card card) {
-            int index = lastIndex + 1;
-            if (index < mCardMap.length) {
-                mCardMap[index] = card;
-            } else {
-                int oldLength = mCardMap.length;
-                Card[] newCardMap = new Card[oldLength * 2];
-                System.arraycopy(mCardMap, 0, newCardMap, 0, oldLength);
-                mCardMap = newCardMap;
-                mCardMap[oldLength] = card;
-                index = oldLength;
-
-                oldLength = mOffsetMap.length;
-                int[] newOffsetMap = new int[oldLength * 2];
-                System.arraycopy(mOffsetMap, 0, newOffsetMap, 0, oldLength);
-                mOffsetMap = newOffsetMap;
+        private int mTotalColumn = -1;
+
+        private int mSpanCount = -1;
+
+        // span sizes of cells in [0, mSizeCount) are valid
+        private int mSizeCount;
+
+        // span indexes of cells in [0, mIndexCount) are valid
+        private int mIndexCount;
+
+        void invalidate(int offset) {
+            mSizeCount = Math.min(mSizeCount, Math.max(0, offset));
+            mIndexCount = Math.min(mIndexCount, mSizeCount);
+        }
+
+        int getSpanSize(@NonNull CellSpanSizeLookup lookup, int offset) {
+            ensureSpanSizes(lookup, offset + 1);
+            return mSpanSizes[offset];
+        }
+
+        int getSpanIndex(@NonNull CellSpanSizeLookup lookup, int offset, int spanCount) {
+            ensureSpanSizes(lookup, offset + 1);
+            if (mSpanCount != spanCount) {
+                mSpanCount = spanCount;
+                mIndexCount = 0;
             }
-            lastIndex = index;
-            for (int i = startOffset; i <= endOffset; i++) {
-                mOffsetMap[i] = index;
+            if (offset >= mIndexCount) {
+                int span = mIndexCount > 0 ? mRowSpans[mIndexCount - 1] : 0;
+                for (int i = mIndexCount; i <= offset; i++) {
+                    int size = mSpanSizes[i];
+                    if (size == spanCount || span + size > spanCount) {
+                        mSpanIndexes[i] = 0;
+                    } else {
+                        mSpanIndexes[i] = span;
+                    }
+                    span += size;
+                    if (span == spanCount) {
+                        span = 0;
+                    } else if (span > spanCount) {
+                        span = size;
+                    }
+                    mRowSpans[i] = span;
+                }
+                mIndexCount = offset + 1;
             }
+            return mSpanIndexes[offset];
         }
 
-        public Card getChild(int offset) {
-            return mCardMap[mOffsetMap[offset]];
+        private void ensureSpanSizes(@NonNull CellSpanSizeLookup lookup, int count) {
+            if (mTotalColumn != lookup.mTotalColumn) {
+                mTotalColumn = lookup.mTotalColumn;
+                invalidate(0);
+            }
+            if (mSizeCount > lookup.mCells.size()) {
+                invalidate(lookup.mCells.size());
+            }
+            if (count <= mSizeCount) {
+                return;
+            }
+            if (count > mSpanSizes.length) {
+                int length = Math.max(count, Math.max(lookup.mCells.size(), mSpanSizes.length * 2));
+                mSpanSizes = grow(mSpanSizes, length);
+                mSpanIndexes = grow(mSpanIndexes, length);
+                mRowSpans = grow(mRowSpans, length);
+            }
+            for (int i = mSizeCount; i < count; i++) {
+                mSpanSizes[i] = lookup.computeCellSpanSize(i);
+            }
+            mSizeCount = count;
         }
 
+        private static int[] grow(int[] array, int length) {
+            int[] result = new int[length];
+            System.arraycopy(array, 0, result, 0, array.length);
+            return result;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -24,12 +24,14 @@
 
 package com.tmall.wireless.tangram.structure.card;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.alibaba.android.vlayout.LayoutHelper;
 import com.alibaba.android.vlayout.layout.LinearLayoutHelper;
 import com.tmall.wireless.tangram.dataparser.concrete.Card;
 import com.tmall.wireless.tangram.dataparser.concrete.Style;
+import com.tmall.wireless.tangram.structure.BaseCell;
 
 /**
  * Card perform linear layout
@@ -41,6 +43,11 @@ public class LinearCard extends Card {
 
     private static final String KEY_DIVIDE_HEIGHT = "divideHeight";
 
+    @Override
+    public int resolveCellWidth(@NonNull BaseCell cell, int availableWidth) {
+        return getContentWidth(availableWidth);
+    }
+
     @Nullable
     @Override
     public LayoutHelper convertLayoutHelper(@Nullable LayoutHelper oldHelper) {
@@ -92,6 +92,15 @@ public class StaggeredCard extends Card {
 
         // public float[] cols;
 
+        @Override
+        public int layoutHash() {
+            int hash = super.layoutHash();
+            hash = 31 * hash + vGap;
+            hash = 31 * hash + hGap;
+            hash = 31 * hash + column;
+            return hash;
+        }
+
         @Override
         public void parseWith(JSONObject data) {
             super.parseWith(data);
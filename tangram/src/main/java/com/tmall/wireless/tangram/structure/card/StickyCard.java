@@ -91,6 +91,14 @@ public class StickyCard extends OneItemCard {
             this.stickyStart = defaultSticky;
         }
 
+        @Override
+        public int layoutHash() {
+            int hash = super.layoutHash();
+            hash = 31 * hash + (stickyStart ? 1 : 0);
+            hash = 31 * hash + offset;
+            return hash;
+        }
+
         @Override
         public void parseWith(JSONObject data) {
             super.parseWith(data);
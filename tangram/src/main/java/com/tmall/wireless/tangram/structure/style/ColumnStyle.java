@@ -31,6 +31,8 @@ import com.tmall.wireless.tangram.dataparser.concrete.Style;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.util.Arrays;
+
 /**
  * Created by huifeng.hxl on 2015/1/15.
  */
@@ -44,6 +46,14 @@ public class ColumnStyle extends Style {
     @Nullable
     public float[] rows;
 
+    @Override
+    public int layoutHash() {
+        int hash = super.layoutHash();
+        hash = 31 * hash + Arrays.hashCode(cols);
+        hash = 31 * hash + Arrays.hashCode(rows);
+        return hash;
+    }
+
     @Override
     public void parseWith(JSONObject data) {
         super.parseWith(data);
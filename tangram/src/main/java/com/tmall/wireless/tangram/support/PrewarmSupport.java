@@ -0,0 +1,333 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.SparseIntArray;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.tmall.wireless.tangram.TangramEngine;
+import com.tmall.wireless.tangram.core.adapter.AdaptiveRecycledViewPool;
+import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.core.adapter.SharedViewPool;
+import com.tmall.wireless.tangram.dataparser.concrete.BaseCellBinder;
+import com.tmall.wireless.tangram.dataparser.concrete.BaseCellBinderResolver;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.util.LogUtils;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import org.json.JSONObject;
+
+/**
+ * Create views of a new page into {@link RecyclerView.RecycledViewPool} ahead, so that the first scroll does not
+ * inflate views on main thread. The count of each view type is predicted from cells on the first screen, estimated by
+ * heights precomputed from style, plus {@link #setExtraCount(int) extra} cells after it. A card may declare more by
+ * a map from cell type to count in its params:
+ * <pre>
+ *     "style": {"prewarm": {"product": 8}}
+ * </pre>
+ * Views inflated from xml layouts are inflated on computation thread, others are created on main thread when it is
+ * idle. Inflation on computation thread takes the {@link RecyclerView} as parent to generate layout params, so layouts
+ * of registered binders and constructors of their views must not touch main thread state, such as view tree of the
+ * parent or handlers created without looper. Register binders of views not safe to inflate so with a view class instead
+ * of a layout, they are created on main thread. Register it to {@link TangramEngine}, it works after data is set:
+ * <pre>
+ *     engine.register(PrewarmSupport.class, new PrewarmSupport(engine));
+ * </pre>
+ */
+public class PrewarmSupport {
+
+    public static final String KEY_PREWARM = "prewarm";
+
+    private static final String TAG = "PrewarmSupport";
+
+    private static final int DEFAULT_MAX_SCRAP = 5;
+
+    private static final int DEFAULT_ITEM_HEIGHT_DP = 80;
+
+    private static final long IDLE_BUDGET_MS = 4;
+
+    private final TangramEngine mTangramEngine;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final ArrayDeque<Integer> mPendingTypes = new ArrayDeque<>();
+
+    private final SparseIntArray mCapacities = new SparseIntArray();
+
+    private int mExtraCount = 10;
+
+    private int mEstimatedItemHeight;
+
+    private boolean mIdleHandlerAdded;
+
+    private Disposable mPreparing;
+
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            long deadline = SystemClock.uptimeMillis() + IDLE_BUDGET_MS;
+            while (!mPendingTypes.isEmpty() && SystemClock.uptimeMillis() < deadline) {
+                createViewHolder(mPendingTypes.poll());
+            }
+            if (mPendingTypes.isEmpty()) {
+                mIdleHandlerAdded = false;
+                return false;
+            }
+            // wake up the queue, so that it becomes idle again
+            mMainHandler.post(NO_OP);
+            return true;
+        }
+    };
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    public PrewarmSupport(@NonNull TangramEngine tangramEngine) {
+        this.mTangramEngine = tangramEngine;
+        DisplayMetrics metrics = tangramEngine.getContext().getResources().getDisplayMetrics();
+        this.mEstimatedItemHeight = (int) (DEFAULT_ITEM_HEIGHT_DP * metrics.density + 0.5f);
+    }
+
+    /**
+     * @param extraCount count of cells after the first screen to create views for
+     */
+    public void setExtraCount(int extraCount) {
+        this.mExtraCount = Math.max(extraCount, 0);
+    }
+
+    /**
+     * @param estimatedItemHeight height of cells whose height is not precomputed, used to find the first screen
+     */
+    public void setEstimatedItemHeight(int estimatedItemHeight) {
+        this.mEstimatedItemHeight = Math.max(estimatedItemHeight, 1);
+    }
+
+    /**
+     * Predict count of views of each type needed by the first screen and the extra cells, and count declared by cards.
+     *
+     * @return view type to count
+     */
+    @NonNull
+    public SparseIntArray computeHistogram() {
+        SparseIntArray histogram = new SparseIntArray();
+        RecyclerView contentView = mTangramEngine.getContentView();
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (contentView == null || adapter == null) {
+            return histogram;
+        }
+        DisplayMetrics metrics = contentView.getResources().getDisplayMetrics();
+        int viewportHeight = contentView.getHeight() > 0 ? contentView.getHeight() : metrics.heightPixels;
+        int viewportWidth = contentView.getWidth() > 0 ? contentView.getWidth() : metrics.widthPixels;
+
+        List<BaseCell> cells = adapter.getComponentsView();
+        Map<String, Integer> typesOfCells = new HashMap<>();
+        int height = 0;
+        int extra = -1;
+        for (int i = 0, size = cells.size(); i < size; i++) {
+            BaseCell cell = cells.get(i);
+            int viewType = adapter.getItemType(cell);
+            if (!typesOfCells.containsKey(cell.stringType)) {
+                typesOfCells.put(cell.stringType, viewType);
+            }
+            if (extra >= mExtraCount) {
+                continue;
+            }
+            histogram.put(viewType, histogram.get(viewType) + 1);
+            if (extra >= 0) {
+                extra++;
+            } else {
+                height += estimateHeight(cell, viewportWidth);
+                if (height >= viewportHeight) {
+                    extra = 0;
+                }
+            }
+        }
+
+        List<Card> cards = adapter.getGroupsView();
+        for (int i = 0, size = cards.size(); i < size; i++) {
+            JSONObject hints = cards.get(i).optJsonObjectParam(KEY_PREWARM);
+            if (hints == null) {
+                continue;
+            }
+            for (Iterator<String> it = hints.keys(); it.hasNext(); ) {
+                String cellType = it.next();
+                Integer viewType = typesOfCells.get(cellType);
+                if (viewType != null) {
+                    histogram.put(viewType, Math.max(histogram.get(viewType), hints.optInt(cellType)));
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Start creating views predicted by {@link #computeHistogram()}, minus views already in pool. Called by
+     * {@link TangramEngine} after data is set, and cancels the previous one.
+     */
+    @MainThread
+    public void prewarm() {
+        cancel();
+        final RecyclerView contentView = mTangramEngine.getContentView();
+        final GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        BaseCellBinderResolver binderResolver = mTangramEngine.getService(BaseCellBinderResolver.class);
+        if (contentView == null || adapter == null || binderResolver == null) {
+            return;
+        }
+        RecyclerView.RecycledViewPool pool = contentView.getRecycledViewPool();
+        SparseIntArray histogram = computeHistogram();
+        List<PrepareTask> tasks = new ArrayList<>();
+        for (int i = 0, size = histogram.size(); i < size; i++) {
+            int viewType = histogram.keyAt(i);
+            int predicted = histogram.valueAt(i);
+            ensureCapacity(pool, viewType, predicted);
+            int count = predicted - pool.getRecycledViewCount(viewType);
+            if (count <= 0) {
+                continue;
+            }
+            BaseCellBinder<?, ?> binder = binderResolver.create(adapter.getCellTypeFromItemType(viewType));
+            if (binder == null) {
+                continue;
+            }
+            for (int j = 0; j < count; j++) {
+                if (binder.canPrepareView()) {
+                    tasks.add(new PrepareTask(viewType, binder));
+                } else {
+                    mPendingTypes.add(viewType);
+                }
+            }
+        }
+
+        if (!mPendingTypes.isEmpty() && !mIdleHandlerAdded) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+        }
+        if (!tasks.isEmpty()) {
+            mPreparing = Observable.fromIterable(tasks)
+                .observeOn(Schedulers.computation())
+                .filter(new Predicate<PrepareTask>() {
+                    @Override
+                    public boolean test(PrepareTask task) throws Exception {
+                        return task.binder.prepareView(mTangramEngine.getContext(), contentView);
+                    }
+                })
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Consumer<PrepareTask>() {
+                    @Override
+                    public void accept(PrepareTask task) throws Exception {
+                        // prepared view may be taken by layout already
+                        if (task.binder.hasPreparedView()) {
+                            createViewHolder(task.viewType);
+                        }
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) throws Exception {
+                        LogUtils.e(TAG, "prewarm failed: " + throwable.getMessage(), throwable);
+                    }
+                });
+        }
+    }
+
+    /**
+     * Stop creating views, views already in pool are kept.
+     */
+    @MainThread
+    public void cancel() {
+        if (mPreparing != null) {
+            mPreparing.dispose();
+            mPreparing = null;
+        }
+        mPendingTypes.clear();
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(mIdleHandler);
+        }
+    }
+
+    private void ensureCapacity(RecyclerView.RecycledViewPool pool, int viewType, int count) {
+        if (pool instanceof AdaptiveRecycledViewPool) {
+            ((AdaptiveRecycledViewPool) pool).ensureCapacity(viewType, count);
+        } else if (pool instanceof SharedViewPool.Lease) {
+            ((SharedViewPool.Lease) pool).getSharedViewPool().ensureCapacity(viewType, count);
+        } else if (count > Math.max(DEFAULT_MAX_SCRAP, mCapacities.get(viewType))) {
+            // InnerRecycledViewPool drops recycled views of a type when its max changes, so only grow it
+            pool.setMaxRecycledViews(viewType, count);
+            mCapacities.put(viewType, count);
+        }
+    }
+
+    private void createViewHolder(int viewType) {
+        RecyclerView contentView = mTangramEngine.getContentView();
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (contentView == null || adapter == null) {
+            return;
+        }
+        contentView.getRecycledViewPool().putRecycledView(adapter.createViewHolder(contentView, viewType));
+    }
+
+    private int estimateHeight(BaseCell cell, int width) {
+        if (cell.getPrecomputedHeight() >= 0) {
+            return cell.getPrecomputedHeight();
+        }
+        float ratio = cell.getPrecomputedRatio();
+        if (!Float.isNaN(ratio) && ratio > 0) {
+            return (int) (width / ratio);
+        }
+        return mEstimatedItemHeight;
+    }
+
+    private static final class PrepareTask {
+
+        final int viewType;
+
+        final BaseCellBinder<?, ?> binder;
+
+        PrepareTask(int viewType, BaseCellBinder<?, ?> binder) {
+            this.viewType = viewType;
+            this.binder = binder;
+        }
+    }
+}
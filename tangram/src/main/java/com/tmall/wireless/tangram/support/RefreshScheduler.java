@@ -0,0 +1,325 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support;
+
+import android.os.Build.VERSION;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coalesce refresh requests into at most one refresh per frame. A request only marks the scheduler dirty and records
+ * whether layout is affected or which cards changed, the real refresh is performed once in the next frame callback. On devices below API 16
+ * which has no {@link Choreographer}, it falls back to posting to the main thread.
+ */
+public class RefreshScheduler {
+
+    public interface OnRefreshListener {
+
+        /**
+         * Perform the coalesced refresh, called on main thread.
+         *
+         * @param layoutUpdated true if any of the coalesced requests affects layout
+         * @return false if refresh can not be performed now, it would be retried in next frame
+         */
+        boolean onRefresh(boolean layoutUpdated);
+
+        /**
+         * Perform the coalesced refresh of changed cards, called on main thread.
+         *
+         * @param cards cards changed, in order of request
+         * @return false if refresh can not be performed now, it would be retried in next frame
+         */
+        boolean onRefreshCards(@NonNull List<Card> cards);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final OnRefreshListener mOnRefreshListener;
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            postFrame();
+        }
+    };
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mRemoveFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            removeFrame();
+        }
+    };
+
+    private FrameCallbackWrapper mFrameCallback;
+
+    private boolean mScheduled;
+
+    private boolean mLayoutUpdated;
+
+    private boolean mFullRefresh;
+
+    private final Set<Card> mDirtyCards = new LinkedHashSet<>();
+
+    private int mPendingCount;
+
+    private long mRequestedCount;
+
+    private long mExecutedCount;
+
+    private long mCoalescedCount;
+
+    public RefreshScheduler(@NonNull OnRefreshListener listener) {
+        mOnRefreshListener = Preconditions.checkNotNull(listener, "listener should not be null");
+    }
+
+    /**
+     * Mark data dirty and request a refresh in next frame. Safe to be called from any thread.
+     *
+     * @param layoutUpdated true if layout is affected
+     */
+    public void schedule(boolean layoutUpdated) {
+        synchronized (this) {
+            mRequestedCount++;
+            mPendingCount++;
+            mFullRefresh = true;
+            mLayoutUpdated |= layoutUpdated;
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        scheduleFrame();
+    }
+
+    /**
+     * Mark a card dirty and request a refresh of it in next frame. Safe to be called from any thread.
+     *
+     * @param card the changed card
+     */
+    public void schedule(@NonNull Card card) {
+        synchronized (this) {
+            mRequestedCount++;
+            mPendingCount++;
+            mDirtyCards.add(card);
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            postFrame();
+        } else {
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+
+    /**
+     * Drop pending refresh requests, called when view unbound or engine destroyed. Safe to be called from any thread,
+     * the frame callback is removed on main thread since {@link Choreographer} is bound to the looper of its thread.
+     */
+    public void cancel() {
+        synchronized (this) {
+            mScheduled = false;
+            mFullRefresh = false;
+            mLayoutUpdated = false;
+            mDirtyCards.clear();
+            mPendingCount = 0;
+        }
+        mMainHandler.removeCallbacks(mScheduleRunnable);
+        mMainHandler.removeCallbacks(mFlushRunnable);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            removeFrame();
+        } else {
+            mMainHandler.post(mRemoveFrameRunnable);
+        }
+    }
+
+    private void removeFrame() {
+        synchronized (this) {
+            if (mScheduled) {
+                // scheduled again after cancel
+                return;
+            }
+        }
+        if (mFrameCallback != null) {
+            mFrameCallback.remove();
+        }
+    }
+
+    /**
+     * @return true if there is a refresh waiting for next frame
+     */
+    public synchronized boolean isScheduled() {
+        return mScheduled;
+    }
+
+    /**
+     * @return total count of refresh requests
+     */
+    public synchronized long getRequestedCount() {
+        return mRequestedCount;
+    }
+
+    /**
+     * @return count of refreshes really performed
+     */
+    public synchronized long getExecutedCount() {
+        return mExecutedCount;
+    }
+
+    /**
+     * @return count of refresh requests merged into another one
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    public synchronized void resetCounts() {
+        mRequestedCount = 0;
+        mExecutedCount = 0;
+        mCoalescedCount = 0;
+    }
+
+    private void postFrame() {
+        synchronized (this) {
+            if (!mScheduled) {
+                return;
+            }
+        }
+        if (VERSION.SDK_INT >= 16) {
+            if (mFrameCallback == null) {
+                mFrameCallback = new FrameCallbackWrapper(mFlushRunnable);
+            }
+            mFrameCallback.post();
+        } else {
+            mMainHandler.post(mFlushRunnable);
+        }
+    }
+
+    @VisibleForTesting
+    void flush() {
+        boolean fullRefresh;
+        boolean layoutUpdated;
+        List<Card> dirtyCards;
+        int pendingCount;
+        synchronized (this) {
+            if (!mScheduled) {
+                return;
+            }
+            fullRefresh = mFullRefresh;
+            layoutUpdated = mLayoutUpdated;
+            pendingCount = mPendingCount;
+            dirtyCards = new ArrayList<>(mDirtyCards);
+            mFullRefresh = false;
+            mLayoutUpdated = false;
+            mDirtyCards.clear();
+            mPendingCount = 0;
+            mScheduled = false;
+        }
+        if (pendingCount == 0) {
+            return;
+        }
+        boolean done;
+        if (fullRefresh && layoutUpdated) {
+            // full rebuild covers all dirty cards
+            done = mOnRefreshListener.onRefresh(true);
+            dirtyCards.clear();
+        } else {
+            done = dirtyCards.isEmpty() || mOnRefreshListener.onRefreshCards(dirtyCards);
+            if (done) {
+                dirtyCards.clear();
+                if (fullRefresh) {
+                    done = mOnRefreshListener.onRefresh(false);
+                }
+            }
+        }
+        if (done) {
+            synchronized (this) {
+                mExecutedCount++;
+                mCoalescedCount += pendingCount - 1;
+            }
+        } else {
+            synchronized (this) {
+                mFullRefresh |= fullRefresh;
+                mLayoutUpdated |= layoutUpdated;
+                mDirtyCards.addAll(dirtyCards);
+                mPendingCount += pendingCount;
+                if (mScheduled) {
+                    return;
+                }
+                mScheduled = true;
+            }
+            postFrame();
+        }
+    }
+
+    /**
+     * Isolate {@link Choreographer} from class loading on devices below API 16.
+     */
+    private static final class FrameCallbackWrapper implements Choreographer.FrameCallback {
+
+        private final Runnable mTask;
+
+        FrameCallbackWrapper(Runnable task) {
+            mTask = task;
+        }
+
+        void post() {
+            Choreographer.getInstance().removeFrameCallback(this);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mTask.run();
+        }
+    }
+}
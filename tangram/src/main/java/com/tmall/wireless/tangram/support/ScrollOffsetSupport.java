@@ -0,0 +1,481 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support;
+
+import java.util.List;
+
+import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.alibaba.android.vlayout.LayoutHelper;
+import com.alibaba.android.vlayout.OrientationHelperEx;
+import com.alibaba.android.vlayout.VirtualLayoutManager;
+import com.alibaba.android.vlayout.layout.FixAreaLayoutHelper;
+import com.tmall.wireless.tangram.TangramEngine;
+import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.util.FenwickTree;
+
+/**
+ * Index of offsets of cells in content, built from distances between tops of adjacent cells measured in layout, and
+ * estimated by average of measured cells in the same card for cells not laid out yet. The index follows range
+ * notifications of adapter, changed and inserted cells are estimated on next query, it is only rebuilt after the whole
+ * data set changed. It supports precise
+ * {@link #scrollToOffset(int)}, absolute scroll offset and range for scroll bars, and restoring scroll offset across
+ * {@link TangramEngine#setData}. Fixed and sticky cells take no space in the index. Register it to
+ * {@link TangramEngine}:
+ * <pre>
+ *     engine.register(ScrollOffsetSupport.class, new ScrollOffsetSupport(engine));
+ * </pre>
+ */
+public class ScrollOffsetSupport {
+
+    private final TangramEngine mTangramEngine;
+
+    private final FenwickTree mTree = new FenwickTree();
+
+    /*
+     * buffer used to rebuild the index
+     */
+    private int[] mDeltas = new int[0];
+
+    /*
+     * positions whose delta should be estimated again
+     */
+    private int[] mPending = new int[16];
+
+    private int mPendingCount = 0;
+
+    private boolean mIndexValid = false;
+
+    private GroupBasicAdapter<Card, BaseCell> mObservedAdapter;
+
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            mIndexValid = false;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            // a changed item may be another cell replacing the old one
+            addPending(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (!mIndexValid) {
+                return;
+            }
+            mTree.insert(Math.min(positionStart, mTree.size()), itemCount);
+            shiftPending(positionStart, itemCount);
+            addPending(positionStart, itemCount);
+            if (positionStart == 0) {
+                // the previous first cell has no delta recorded
+                addPending(itemCount, 1);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (!mIndexValid) {
+                return;
+            }
+            mTree.remove(positionStart, itemCount);
+            shiftPending(positionStart, -itemCount);
+            if (positionStart == 0) {
+                addPending(0, 1);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            // vlayout never moves more than one item at a time
+            onItemRangeRemoved(fromPosition, itemCount);
+            onItemRangeInserted(toPosition, itemCount);
+        }
+    };
+
+    /**
+     * space before the first cell, such as top margin of the first card
+     */
+    private int mLeading = 0;
+
+    private int mEstimatedDelta = 0;
+
+    private long mSavedStableId = RecyclerView.NO_ID;
+
+    private BaseCell mSavedCell;
+
+    private int mSavedItemOffset = 0;
+
+    private int mSavedScrollOffset = -1;
+
+    public ScrollOffsetSupport(@NonNull TangramEngine tangramEngine) {
+        this.mTangramEngine = tangramEngine;
+    }
+
+    /**
+     * @param estimatedDelta distance between tops of adjacent cells used before any cell of a card is measured
+     */
+    public void setEstimatedDelta(int estimatedDelta) {
+        this.mEstimatedDelta = Math.max(estimatedDelta, 0);
+        mIndexValid = false;
+    }
+
+    /**
+     * Measure laid out cells, called by {@link TangramEngine} after scrolling and layout.
+     */
+    public void onLayout() {
+        RecyclerView contentView = mTangramEngine.getContentView();
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (contentView == null || layoutManager == null || adapter == null) {
+            return;
+        }
+        ensureIndex(adapter);
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first < 0 || last < first) {
+            return;
+        }
+        OrientationHelperEx orientationHelper = layoutManager.getMainOrientationHelper();
+        List<BaseCell> cells = adapter.getComponentsView();
+        int count = Math.min(mTree.size(), cells.size());
+        boolean hasPrevious = false;
+        int maxStart = 0;
+        for (int position = first; position <= last && position < count; position++) {
+            View view = layoutManager.findViewByPosition(position);
+            if (view == null) {
+                hasPrevious = false;
+                continue;
+            }
+            LayoutHelper helper = layoutManager.findLayoutHelperByPosition(position);
+            if (helper instanceof FixAreaLayoutHelper) {
+                // fixed and sticky cells are out of flow
+                updateDelta(cells.get(position), position, 0);
+                continue;
+            }
+            int start = orientationHelper.getDecoratedStart(view);
+            if (position == 0) {
+                if (!contentView.canScrollVertically(-1) && !contentView.canScrollHorizontally(-1)) {
+                    mLeading = Math.max(start - orientationHelper.getStartAfterPadding(), 0);
+                }
+                updateDelta(cells.get(position), position, 0);
+                maxStart = start;
+                hasPrevious = true;
+            } else if (hasPrevious) {
+                // cells of a grid row share the same start, cells in staggered lanes may start before previous ones
+                int delta = Math.max(start - maxStart, 0);
+                updateDelta(cells.get(position), position, delta);
+                maxStart = Math.max(maxStart, start);
+            } else {
+                maxStart = start;
+                hasPrevious = true;
+            }
+        }
+    }
+
+    /**
+     * @param position adapter position
+     * @return offset of the cell's start in content
+     */
+    public int getOffsetOfPosition(int position) {
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (adapter == null || position < 0) {
+            return 0;
+        }
+        ensureIndex(adapter);
+        if (mTree.size() == 0) {
+            return mLeading;
+        }
+        return (int) (mLeading + mTree.sum(Math.min(position, mTree.size() - 1) + 1));
+    }
+
+    /**
+     * @param offset offset in content
+     * @return position of the first cell at the row covering offset
+     */
+    public int findPositionByOffset(int offset) {
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (adapter == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        ensureIndex(adapter);
+        if (mTree.size() == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        long target = mTree.sum(Math.max(mTree.find(offset - mLeading), 1));
+        return target > 0 ? Math.min(mTree.find(target - 1), mTree.size() - 1) : 0;
+    }
+
+    /**
+     * @return absolute scroll offset of content
+     */
+    public int getScrollOffset() {
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        if (layoutManager == null) {
+            return 0;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        View view = first >= 0 ? layoutManager.findViewByPosition(first) : null;
+        if (view == null) {
+            return 0;
+        }
+        OrientationHelperEx orientationHelper = layoutManager.getMainOrientationHelper();
+        int inItem = orientationHelper.getStartAfterPadding() - orientationHelper.getDecoratedStart(view);
+        return Math.max(getOffsetOfPosition(first) + inItem, 0);
+    }
+
+    /**
+     * @return estimated length of the whole content, for scroll bars
+     */
+    public int getScrollRange() {
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        if (adapter == null || layoutManager == null) {
+            return 0;
+        }
+        ensureIndex(adapter);
+        if (mTree.size() == 0) {
+            return 0;
+        }
+        // the last cell is counted by the delta of its next one, use the average instead
+        int last = mTree.size() - 1;
+        return (int) (mLeading + mTree.total() + Math.max(mTree.get(last), mEstimatedDelta));
+    }
+
+    /**
+     * Scroll to make offset in content at the start of viewport.
+     *
+     * @param offset offset in content
+     */
+    public void scrollToOffset(int offset) {
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        int position = findPositionByOffset(offset);
+        if (layoutManager == null || position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        layoutManager.scrollToPositionWithOffset(position, getOffsetOfPosition(position) - offset);
+    }
+
+    /**
+     * Remember the first visible cell and the scroll offset, called before data is replaced. The cell is found again by
+     * its stable id if stable ids are enabled, or else only if the same cell is still in data.
+     */
+    public void saveScrollOffset() {
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        mSavedStableId = RecyclerView.NO_ID;
+        mSavedCell = null;
+        mSavedScrollOffset = -1;
+        if (layoutManager == null || adapter == null) {
+            return;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        View view = first >= 0 ? layoutManager.findViewByPosition(first) : null;
+        if (view == null || first >= adapter.getItemCount()) {
+            return;
+        }
+        mSavedCell = adapter.getItemByPosition(first);
+        mSavedStableId = adapter.hasStableIds() ? adapter.getItemId(first) : RecyclerView.NO_ID;
+        mSavedItemOffset = layoutManager.getMainOrientationHelper().getDecoratedStart(view)
+            - layoutManager.getMainOrientationHelper().getStartAfterPadding();
+        mSavedScrollOffset = getScrollOffset();
+    }
+
+    /**
+     * Scroll back to the cell remembered by {@link #saveScrollOffset()}, or the same offset if it is gone.
+     */
+    public void restoreScrollOffset() {
+        VirtualLayoutManager layoutManager = mTangramEngine.getLayoutManager();
+        GroupBasicAdapter<Card, BaseCell> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (layoutManager == null || adapter == null || mSavedScrollOffset < 0) {
+            return;
+        }
+        int position = RecyclerView.NO_POSITION;
+        if (mSavedStableId != RecyclerView.NO_ID) {
+            position = adapter.getPositionByStableId(mSavedStableId);
+        } else if (mSavedCell != null && mSavedCell.parent != null) {
+            position = adapter.getPositionByItem(mSavedCell, mSavedCell.parent);
+        }
+        if (position != RecyclerView.NO_POSITION) {
+            layoutManager.scrollToPositionWithOffset(position, mSavedItemOffset);
+        } else {
+            scrollToOffset(mSavedScrollOffset);
+        }
+        mSavedCell = null;
+        mSavedScrollOffset = -1;
+    }
+
+    private void updateDelta(BaseCell cell, int position, int delta) {
+        cell.setLayoutDelta(delta);
+        mTree.set(position, delta);
+    }
+
+    private void addPending(int positionStart, int itemCount) {
+        if (!mIndexValid || itemCount <= 0) {
+            return;
+        }
+        if (mPending.length < mPendingCount + itemCount) {
+            int[] pending = new int[Math.max(mPending.length * 2, mPendingCount + itemCount)];
+            System.arraycopy(mPending, 0, pending, 0, mPendingCount);
+            mPending = pending;
+        }
+        for (int i = 0; i < itemCount; i++) {
+            mPending[mPendingCount++] = positionStart + i;
+        }
+    }
+
+    /**
+     * Move pending positions after positionStart by offset, positions of removed items are dropped.
+     */
+    private void shiftPending(int positionStart, int offset) {
+        int count = 0;
+        for (int i = 0; i < mPendingCount; i++) {
+            int position = mPending[i];
+            if (position >= positionStart) {
+                if (offset < 0 && position < positionStart - offset) {
+                    continue;
+                }
+                position += offset;
+            }
+            mPending[count++] = position;
+        }
+        mPendingCount = count;
+    }
+
+    /**
+     * Bring the index up to date, only pending cells are estimated unless the whole data set changed.
+     */
+    private void ensureIndex(@NonNull GroupBasicAdapter<Card, BaseCell> adapter) {
+        if (mObservedAdapter != adapter) {
+            if (mObservedAdapter != null) {
+                mObservedAdapter.unregisterAdapterDataObserver(mDataObserver);
+            }
+            adapter.registerAdapterDataObserver(mDataObserver);
+            mObservedAdapter = adapter;
+            mIndexValid = false;
+        }
+        List<BaseCell> cells = adapter.getComponentsView();
+        if (!mIndexValid || mTree.size() != cells.size()) {
+            rebuildIndex(cells);
+            return;
+        }
+        if (mPendingCount == 0) {
+            return;
+        }
+        int globalEstimate = getGlobalEstimate();
+        Card card = null;
+        int cardEstimate = globalEstimate;
+        for (int i = 0; i < mPendingCount; i++) {
+            int position = mPending[i];
+            if (position < 0 || position >= cells.size()) {
+                continue;
+            }
+            BaseCell cell = cells.get(position);
+            int delta = cell.getLayoutDelta();
+            if (position == 0) {
+                delta = 0;
+            } else if (delta < 0) {
+                if (cell.parent != card || card == null) {
+                    card = cell.parent;
+                    cardEstimate = estimateOfCard(card, globalEstimate);
+                }
+                delta = cardEstimate;
+            }
+            mTree.set(position, delta);
+        }
+        mPendingCount = 0;
+    }
+
+    private int getGlobalEstimate() {
+        // the first cell always takes 0, pending cells take 0 before estimated
+        int count = mTree.size() - 1 - mPendingCount;
+        return count > 0 ? (int) (mTree.total() / count) : mEstimatedDelta;
+    }
+
+    private int estimateOfCard(Card card, int globalEstimate) {
+        if (card == null) {
+            return globalEstimate;
+        }
+        List<BaseCell> cells = card.getCells();
+        long sum = 0;
+        int count = 0;
+        for (int i = 0, size = cells.size(); i < size; i++) {
+            int delta = cells.get(i).getLayoutDelta();
+            if (delta >= 0) {
+                sum += delta;
+                count++;
+            }
+        }
+        return count > 0 ? (int) (sum / count) : globalEstimate;
+    }
+
+    /**
+     * Rebuild the index after the whole data set changed, unmeasured cells take the average of measured cells in the
+     * same card. Cells of a card are adjacent, so cards are visited run by run.
+     */
+    private void rebuildIndex(@NonNull List<BaseCell> cells) {
+        int size = cells.size();
+        if (mDeltas.length < size) {
+            mDeltas = new int[size];
+        }
+        long measuredSum = 0;
+        int measuredCount = 0;
+        for (int i = 1; i < size; i++) {
+            int delta = cells.get(i).getLayoutDelta();
+            if (delta >= 0) {
+                measuredSum += delta;
+                measuredCount++;
+            }
+        }
+        int globalEstimate = measuredCount > 0 ? (int) (measuredSum / measuredCount) : mEstimatedDelta;
+        int runStart = 0;
+        while (runStart < size) {
+            Card card = cells.get(runStart).parent;
+            int runEnd = runStart;
+            long sum = 0;
+            int count = 0;
+            for (; runEnd < size && cells.get(runEnd).parent == card; runEnd++) {
+                int delta = cells.get(runEnd).getLayoutDelta();
+                if (delta >= 0 && runEnd > 0) {
+                    sum += delta;
+                    count++;
+                }
+            }
+            int estimate = card != null && count > 0 ? (int) (sum / count) : globalEstimate;
+            for (int i = runStart; i < runEnd; i++) {
+                int delta = cells.get(i).getLayoutDelta();
+                mDeltas[i] = i == 0 ? 0 : (delta < 0 ? estimate : delta);
+            }
+            runStart = runEnd;
+        }
+        mTree.reset(mDeltas, size);
+        mPendingCount = 0;
+        mIndexValid = true;
+    }
+}
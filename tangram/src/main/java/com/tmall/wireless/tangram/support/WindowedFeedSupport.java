@@ -0,0 +1,486 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.util.Pair;
+import android.util.SparseIntArray;
+import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import com.alibaba.android.vlayout.Range;
+import com.tmall.wireless.tangram.TangramEngine;
+import com.tmall.wireless.tangram.core.adapter.GroupBasicAdapter;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.util.LogUtils;
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import org.json.JSONArray;
+
+/**
+ * Keep memory of infinite feeds bounded. Cards far away from viewport are compacted to stubs which only keep cell count
+ * and measured heights, json of their cells is written to cache directory and read back to rebuild cells when cards
+ * approach viewport again. File access and parsing run sequentially in {@link Schedulers#single()}, so that cells are
+ * never read before written.
+ * Register it to {@link TangramEngine} and call {@link TangramEngine#onScrolled()} in scroll listener:
+ * <pre>
+ *     engine.register(WindowedFeedSupport.class, new WindowedFeedSupport(engine, 5));
+ * </pre>
+ */
+public class WindowedFeedSupport {
+
+    private static final String TAG = "WindowedFeedSupport";
+
+    private static final String DIR_NAME = "tangram_compacted";
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final AtomicInteger sInstanceCount = new AtomicInteger();
+
+    /*
+     * files left by last process are cleared once by the first instance
+     */
+    private static final AtomicBoolean sCleared = new AtomicBoolean();
+
+    private final TangramEngine mTangramEngine;
+
+    private int mResidentDistance;
+
+    private int mCompactDistance;
+
+    private int mLastFirstCardIdx = -1;
+
+    private int mLastLastCardIdx = -1;
+
+    private final Map<Card, SparseIntArray> mCellHeights = new WeakHashMap<>();
+
+    /*
+     * height arrays released by compacted cards, reused for cards recorded later
+     */
+    private final List<SparseIntArray> mSpareHeights = new ArrayList<>();
+
+    private final File mDir;
+
+    private int mFileCount;
+
+    private final Map<Card, CompactedCells> mCompactedCells = new WeakHashMap<>();
+
+    @Nullable
+    private Disposable mRehydratingAll;
+
+    /**
+     * @param tangramEngine    engine this support registered to
+     * @param residentDistance cards within this distance (in cards) to visible cards keep their cells, cards beyond
+     *                         twice of it are compacted
+     */
+    public WindowedFeedSupport(@NonNull TangramEngine tangramEngine, int residentDistance) {
+        this.mTangramEngine = tangramEngine;
+        this.mResidentDistance = Math.max(residentDistance, 0);
+        this.mCompactDistance = mResidentDistance * 2 + 1;
+
+        final File root = new File(tangramEngine.getContext().getCacheDir(), DIR_NAME);
+        this.mDir = new File(root, String.valueOf(sInstanceCount.getAndIncrement()));
+        if (sCleared.compareAndSet(false, true)) {
+            Schedulers.single().scheduleDirect(new Runnable() {
+                @Override
+                public void run() {
+                    delete(root);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param compactDistance cards beyond this distance (in cards) to visible cards are compacted, no less than resident
+     *                        distance so that cards do not flip between two states when scrolling around
+     */
+    public void setCompactDistance(int compactDistance) {
+        this.mCompactDistance = Math.max(compactDistance, mResidentDistance + 1);
+    }
+
+    public int getResidentDistance() {
+        return mResidentDistance;
+    }
+
+    public int getCompactDistance() {
+        return mCompactDistance;
+    }
+
+    /**
+     * Called by {@link TangramEngine#onScrolled()}.
+     *
+     * @param firstCardIdx index of the first visible card
+     * @param lastCardIdx  index of the last visible card
+     */
+    public void onScrolled(int firstCardIdx, int lastCardIdx) {
+        GroupBasicAdapter<Card, ?> adapter = mTangramEngine.getGroupBasicAdapter();
+        if (adapter == null || firstCardIdx < 0 || lastCardIdx < firstCardIdx) {
+            return;
+        }
+
+        recordHeights(adapter);
+
+        if (firstCardIdx == mLastFirstCardIdx && lastCardIdx == mLastLastCardIdx) {
+            return;
+        }
+        mLastFirstCardIdx = firstCardIdx;
+        mLastLastCardIdx = lastCardIdx;
+
+        List<Card> cards = adapter.getGroupsView();
+        for (int i = 0, size = cards.size(); i < size; i++) {
+            Card card = cards.get(i);
+            CompactedCells compacted = mCompactedCells.isEmpty() ? null : mCompactedCells.get(card);
+            if (compacted != null && !card.isCompacted()) {
+                // cells are set again while compacted
+                discard(card, compacted);
+                compacted = null;
+            }
+            int distance = i < firstCardIdx ? firstCardIdx - i : (i > lastCardIdx ? i - lastCardIdx : 0);
+            if (distance <= mResidentDistance) {
+                if (compacted != null && compacted.rehydrating == null && mRehydratingAll == null) {
+                    rehydrate(card, compacted);
+                }
+            } else if (distance > mCompactDistance && card.canCompact()) {
+                JSONArray cellsData = card.compact(mCellHeights.get(card));
+                if (cellsData != null) {
+                    SparseIntArray heights = mCellHeights.remove(card);
+                    if (heights != null) {
+                        heights.clear();
+                        mSpareHeights.add(heights);
+                    }
+                    store(card, cellsData);
+                    mTangramEngine.refreshCard(card);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild all compacted cards, such as before saving the whole data. Cards are rebuilt asynchronously.
+     *
+     * @param onRehydrated called in main thread once all cards are rebuilt, may be null
+     */
+    public void rehydrateAll(@Nullable final Runnable onRehydrated) {
+        if (mRehydratingAll != null) {
+            mRehydratingAll.dispose();
+            mRehydratingAll = null;
+        }
+        final List<Rehydration> rehydrations = new ArrayList<>(mCompactedCells.size());
+        for (Map.Entry<Card, CompactedCells> entry : mCompactedCells.entrySet()) {
+            CompactedCells compacted = entry.getValue();
+            if (compacted.rehydrating != null) {
+                compacted.rehydrating.dispose();
+                compacted.rehydrating = null;
+            }
+            rehydrations.add(new Rehydration(entry.getKey(), compacted));
+        }
+        if (rehydrations.isEmpty()) {
+            if (onRehydrated != null) {
+                onRehydrated.run();
+            }
+            return;
+        }
+        mRehydratingAll = Observable.fromCallable(new Callable<List<Rehydration>>() {
+            @Override
+            public List<Rehydration> call() throws Exception {
+                for (int i = 0, size = rehydrations.size(); i < size; i++) {
+                    rehydrations.get(i).load();
+                }
+                return rehydrations;
+            }
+        }).subscribeOn(Schedulers.single())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(new Consumer<List<Rehydration>>() {
+                @Override
+                public void accept(List<Rehydration> result) throws Exception {
+                    mRehydratingAll = null;
+                    for (int i = 0, size = result.size(); i < size; i++) {
+                        apply(result.get(i));
+                    }
+                    if (onRehydrated != null) {
+                        onRehydrated.run();
+                    }
+                }
+            }, new Consumer<Throwable>() {
+                @Override
+                public void accept(Throwable throwable) throws Exception {
+                    mRehydratingAll = null;
+                    LogUtils.e(TAG, "rehydrate failed: " + throwable.getMessage(), throwable);
+                }
+            });
+    }
+
+    /**
+     * Rebuild all compacted cards, see {@link #rehydrateAll(Runnable)}.
+     */
+    public void rehydrateAll() {
+        rehydrateAll(null);
+    }
+
+    /**
+     * Called by {@link TangramEngine#destroy()}. Stop pending work and delete files of compacted cards, compacted cards
+     * can not be rebuilt any more.
+     */
+    public void destroy() {
+        if (mRehydratingAll != null) {
+            mRehydratingAll.dispose();
+            mRehydratingAll = null;
+        }
+        for (CompactedCells compacted : mCompactedCells.values()) {
+            if (compacted.rehydrating != null) {
+                compacted.rehydrating.dispose();
+            }
+        }
+        mCompactedCells.clear();
+        final File dir = mDir;
+        Schedulers.single().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                delete(dir);
+            }
+        });
+    }
+
+    private void store(@NonNull Card card, @NonNull JSONArray cellsData) {
+        final CompactedCells compacted = new CompactedCells(cellsData, new File(mDir, (mFileCount++) + ".json"));
+        mCompactedCells.put(card, compacted);
+        final JSONArray data = cellsData;
+        Observable.fromCallable(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                writeFile(compacted.file, data.toString());
+                return true;
+            }
+        }).subscribeOn(Schedulers.single())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(new Consumer<Boolean>() {
+                @Override
+                public void accept(Boolean written) throws Exception {
+                    // read back from file from now on
+                    compacted.cellsData = null;
+                }
+            }, new Consumer<Throwable>() {
+                @Override
+                public void accept(Throwable throwable) throws Exception {
+                    // keep json in memory
+                    LogUtils.e(TAG, "store cells failed: " + throwable.getMessage(), throwable);
+                }
+            });
+    }
+
+    private void rehydrate(@NonNull Card card, @NonNull final CompactedCells compacted) {
+        final Rehydration rehydration = new Rehydration(card, compacted);
+        compacted.rehydrating = Observable.fromCallable(new Callable<Rehydration>() {
+            @Override
+            public Rehydration call() throws Exception {
+                rehydration.load();
+                return rehydration;
+            }
+        }).subscribeOn(Schedulers.single())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(new Consumer<Rehydration>() {
+                @Override
+                public void accept(Rehydration result) throws Exception {
+                    compacted.rehydrating = null;
+                    apply(result);
+                }
+            }, new Consumer<Throwable>() {
+                @Override
+                public void accept(Throwable throwable) throws Exception {
+                    compacted.rehydrating = null;
+                    LogUtils.e(TAG, "rehydrate failed: " + throwable.getMessage(), throwable);
+                }
+            });
+    }
+
+    private void apply(@NonNull Rehydration rehydration) {
+        Card card = rehydration.card;
+        if (mCompactedCells.get(card) != rehydration.compacted) {
+            // discarded while loading
+            return;
+        }
+        discard(card, rehydration.compacted);
+        if (rehydration.cells != null && card.rehydrate(rehydration.cellsData, rehydration.cells)) {
+            mTangramEngine.refreshCard(card);
+        }
+    }
+
+    private void discard(@NonNull Card card, @NonNull CompactedCells compacted) {
+        mCompactedCells.remove(card);
+        if (compacted.rehydrating != null) {
+            compacted.rehydrating.dispose();
+            compacted.rehydrating = null;
+        }
+        final File file = compacted.file;
+        Schedulers.single().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                delete(file);
+            }
+        });
+    }
+
+    private void recordHeights(GroupBasicAdapter<Card, ?> adapter) {
+        RecyclerView contentView = mTangramEngine.getContentView();
+        if (contentView == null) {
+            return;
+        }
+        for (int i = 0, count = contentView.getChildCount(); i < count; i++) {
+            View child = contentView.getChildAt(i);
+            int position = contentView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION || position >= adapter.getItemCount()) {
+                continue;
+            }
+            int cardIdx = adapter.findCardIdxFor(position);
+            Pair<Range<Integer>, Card> pair = adapter.getCardRange(cardIdx);
+            if (pair == null || pair.second.isCompacted()) {
+                continue;
+            }
+            SparseIntArray heights = mCellHeights.get(pair.second);
+            if (heights == null) {
+                int spares = mSpareHeights.size();
+                heights = spares > 0 ? mSpareHeights.remove(spares - 1) : new SparseIntArray();
+                mCellHeights.put(pair.second, heights);
+            }
+            heights.put(position - pair.first.getLower(), child.getHeight());
+        }
+    }
+
+    private static void writeFile(@NonNull File file, @NonNull String content) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create " + dir);
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(CHARSET));
+        } finally {
+            out.close();
+        }
+    }
+
+    @NonNull
+    private static String readFile(@NonNull File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString(CHARSET);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void delete(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * Json of a compacted card, accessed in main thread only.
+     */
+    private static final class CompactedCells {
+
+        /**
+         * json of cells, released once written to file
+         */
+        @Nullable
+        JSONArray cellsData;
+
+        @NonNull
+        final File file;
+
+        @Nullable
+        Disposable rehydrating;
+
+        CompactedCells(@NonNull JSONArray cellsData, @NonNull File file) {
+            this.cellsData = cellsData;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Cells of a compacted card loaded in worker thread.
+     */
+    private static final class Rehydration {
+
+        @NonNull
+        final Card card;
+
+        @NonNull
+        final CompactedCells compacted;
+
+        /**
+         * captured in main thread, json of cells is read from file if released
+         */
+        @Nullable
+        JSONArray cellsData;
+
+        @Nullable
+        List<BaseCell> cells;
+
+        Rehydration(@NonNull Card card, @NonNull CompactedCells compacted) {
+            this.card = card;
+            this.compacted = compacted;
+            this.cellsData = compacted.cellsData;
+        }
+
+        void load() throws Exception {
+            if (cellsData == null) {
+                cellsData = new JSONArray(readFile(compacted.file));
+            }
+            cells = card.parseCompactedCells(cellsData);
+        }
+    }
+}
@@ -36,7 +36,9 @@ import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Predicate;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A helper class supports loading data of a card
@@ -50,6 +52,12 @@ public class CardLoadSupport {
         sInitialPage = initialPage;
     }
 
+    public static int getInitialPage() {
+        return sInitialPage;
+    }
+
+    private final Map<Card, PagedCardDataSource> mDataSources = new HashMap<>();
+
     private AsyncPageLoader mAsyncPageLoader;
 
     private AsyncLoader mAsyncLoader;
@@ -96,6 +104,26 @@ public class CardLoadSupport {
         this.mAsyncPageLoader = pageLoader;
     }
 
+    /**
+     * Let a {@link PagedCardDataSource} load pages of its card instead of loaders of this support.
+     * @param dataSource the data source
+     */
+    public void registerDataSource(PagedCardDataSource dataSource) {
+        mDataSources.put(dataSource.getCard(), dataSource);
+    }
+
+    public void unregisterDataSource(Card card) {
+        mDataSources.remove(card);
+    }
+
+    public PagedCardDataSource getDataSource(Card card) {
+        return mDataSources.isEmpty() ? null : mDataSources.get(card);
+    }
+
+    public boolean hasDataSource() {
+        return !mDataSources.isEmpty();
+    }
+
     /**
      * start load data for a card, usually called by {@link com.tmall.wireless.tangram.TangramEngine}
      * @param card the card need async loading data
@@ -133,6 +161,11 @@ public class CardLoadSupport {
      * @param card the card need async loading data
      */
     public void loadMore(final Card card) {
+        PagedCardDataSource dataSource = getDataSource(card);
+        if (dataSource != null) {
+            dataSource.loadNextPage();
+            return;
+        }
         if (mAsyncPageLoader == null) {
             return;
         }
@@ -283,11 +316,12 @@ public class CardLoadSupport {
     }
 
     /**
-     * Start to load more data for a card, usually called by {@link com.tmall.wireless.tangram.TangramEngine}
+     * Start to load more data for a card, usually called by {@link com.tmall.wireless.tangram.TangramEngine}. Cards
+     * with a {@link PagedCardDataSource} are loaded by it instead.
      * @param card the card need reactively loading data
      */
     public void reactiveDoLoadMore(Card card) {
-        if (mLoadMoreObserver == null) {
+        if (mLoadMoreObserver == null || getDataSource(card) != null) {
             return;
         }
         mLoadMoreObserver.onNext(card);
@@ -0,0 +1,369 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support.async;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.tmall.wireless.tangram.MVHelper;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Paged data of a card loaded by {@link AsyncPageLoader}. Pages are loaded when scrolled within prefetch distance, pages
+ * not loaded yet (if total count is known) or dropped are presented by placeholder cells, and only the latest loaded
+ * pages are kept in memory. A page failed to load is not requested again by scrolling until a backoff delay passes,
+ * or at all if the loader tells not to retry, until {@link #retry()} is called.
+ * Register it by {@link CardLoadSupport#registerDataSource(PagedCardDataSource)}, then {@link CardLoadSupport#loadMore(Card)}
+ * and scrolling of {@link com.tmall.wireless.tangram.TangramEngine} are delegated to it.
+ */
+public class PagedCardDataSource {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+
+    private static final long MAX_RETRY_DELAY_MS = 60 * 1000;
+
+    private static final class Page {
+
+        @Nullable
+        List<BaseCell> cells;
+
+        @Nullable
+        List<BaseCell> placeholders;
+
+        int size;
+
+        boolean loading;
+
+        boolean loaded;
+
+        /**
+         * loader failed without retry, only {@link #retry()} loads it again
+         */
+        boolean failed;
+
+        int failures;
+
+        /**
+         * uptime before which the page is not requested again after a failure
+         */
+        long retryAt;
+    }
+
+    @NonNull
+    private final Card mCard;
+
+    @NonNull
+    private final AsyncPageLoader mPageLoader;
+
+    private final int mPageSize;
+
+    private int mPrefetchDistance;
+
+    private int mMaxResidentPages = Integer.MAX_VALUE;
+
+    private int mTotalCount = -1;
+
+    private int mPlaceholderHeight = 0;
+
+    private int mPlaceholderBgColor = 0x0;
+
+    private boolean mHasMore = true;
+
+    private int mFirstVisible = -1;
+
+    private int mLastVisible = -1;
+
+    private final List<Page> mPages = new ArrayList<>();
+
+    /**
+     * resident pages in loaded order, the first one is dropped first
+     */
+    private final LinkedList<Page> mResidentPages = new LinkedList<>();
+
+    /**
+     * @param card       the card presenting data
+     * @param pageSize   count of cells per page
+     * @param pageLoader loader of pages
+     */
+    public PagedCardDataSource(@NonNull Card card, int pageSize, @NonNull AsyncPageLoader pageLoader) {
+        this.mCard = Preconditions.checkNotNull(card, "card should not be null");
+        this.mPageLoader = Preconditions.checkNotNull(pageLoader, "pageLoader should not be null");
+        this.mPageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        this.mPrefetchDistance = mPageSize / 2;
+    }
+
+    @NonNull
+    public Card getCard() {
+        return mCard;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * @param prefetchDistance a page is loaded when visible cells are within this count of cells to it
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        this.mPrefetchDistance = Math.max(prefetchDistance, 0);
+    }
+
+    /**
+     * @param maxResidentPages max count of pages kept in memory, the earliest loaded pages are replaced by placeholders
+     */
+    public void setMaxResidentPages(int maxResidentPages) {
+        this.mMaxResidentPages = Math.max(maxResidentPages, 1);
+    }
+
+    /**
+     * @param totalCount total count of cells if known, pages not loaded yet are presented by placeholders at once; -1
+     *                   if unknown
+     */
+    public void setTotalCount(int totalCount) {
+        this.mTotalCount = totalCount;
+        if (totalCount >= 0) {
+            int pageCount = (totalCount + mPageSize - 1) / mPageSize;
+            if (mPages.size() < pageCount) {
+                while (mPages.size() < pageCount) {
+                    Page page = new Page();
+                    page.size = Math.min(mPageSize, totalCount - mPages.size() * mPageSize);
+                    mPages.add(page);
+                }
+                // present the whole extent before the first page arrives
+                publish();
+            }
+        }
+    }
+
+    /**
+     * @param height  height of placeholder cells
+     * @param bgColor background color of placeholder cells
+     */
+    public void setPlaceholder(int height, int bgColor) {
+        this.mPlaceholderHeight = height;
+        this.mPlaceholderBgColor = bgColor;
+    }
+
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Load failed pages again, including those the loader told not to retry, and those waiting for backoff. Pages
+     * within prefetch distance of the last visible cells are requested at once, others when scrolled to.
+     */
+    public void retry() {
+        boolean hasMore = false;
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            Page page = mPages.get(i);
+            if (page.failed || page.failures > 0) {
+                page.failed = false;
+                page.failures = 0;
+                page.retryAt = 0;
+                hasMore |= i == size - 1;
+            }
+        }
+        if (hasMore) {
+            // the last page failed without retry was taken as the end
+            mHasMore = true;
+        }
+        if (mFirstVisible >= 0) {
+            onVisibleRangeChanged(mFirstVisible, mLastVisible);
+        }
+    }
+
+    /**
+     * Load next page not loaded before, called by {@link CardLoadSupport#loadMore(Card)}.
+     */
+    public void loadNextPage() {
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            Page page = mPages.get(i);
+            if (!page.loaded) {
+                loadPage(i);
+                return;
+            }
+        }
+        if (mHasMore && (mTotalCount < 0 || mPages.size() * mPageSize < mTotalCount)) {
+            mPages.add(new Page());
+            loadPage(mPages.size() - 1);
+        }
+    }
+
+    /**
+     * Called when cells of card are visible, pages within prefetch distance are loaded.
+     *
+     * @param first position in card of the first visible cell
+     * @param last  position in card of the last visible cell
+     */
+    public void onVisibleRangeChanged(int first, int last) {
+        mFirstVisible = first;
+        mLastVisible = last;
+        int from = first - mPrefetchDistance;
+        int to = last + mPrefetchDistance;
+        int start = 0;
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            Page page = mPages.get(i);
+            int end = start + page.size;
+            if (end > from && start <= to && page.cells == null) {
+                loadPage(i);
+            }
+            start = end;
+        }
+        if (to >= start && mHasMore && mTotalCount < 0) {
+            loadNextPage();
+        }
+    }
+
+    private void loadPage(final int index) {
+        final Page page = mPages.get(index);
+        if (page.loading || page.cells != null || page.failed || uptimeMillis() < page.retryAt) {
+            return;
+        }
+        page.loading = true;
+        mCard.loading = true;
+        mPageLoader.loadData(CardLoadSupport.getInitialPage() + index, mCard, new AsyncPageLoader.LoadedCallback() {
+            @Override
+            public void finish(boolean hasMore) {
+                // nothing in the page, keep it empty instead of requesting it again
+                finish(Collections.<BaseCell>emptyList(), hasMore);
+            }
+
+            @Override
+            public void finish(List<BaseCell> cells, boolean hasMore) {
+                page.loading = false;
+                page.loaded = true;
+                page.failures = 0;
+                page.retryAt = 0;
+                page.cells = cells != null ? new ArrayList<>(cells) : Collections.<BaseCell>emptyList();
+                page.size = page.cells.size();
+                page.placeholders = null;
+                mResidentPages.remove(page);
+                mResidentPages.add(page);
+                dropPages(page);
+                onPageFinished(index, hasMore);
+                publish();
+            }
+
+            @Override
+            public void fail(boolean retry) {
+                page.loading = false;
+                page.failures++;
+                if (retry) {
+                    page.retryAt = uptimeMillis() + getRetryDelay(page.failures);
+                } else {
+                    page.failed = true;
+                    if (index == mPages.size() - 1) {
+                        mHasMore = false;
+                    }
+                }
+                onPageFinished(index, mHasMore);
+            }
+        });
+    }
+
+    /**
+     * @return delay before a page failed for given times is requested again, doubled on each failure
+     */
+    static long getRetryDelay(int failures) {
+        long delay = INITIAL_RETRY_DELAY_MS;
+        for (int i = 1; i < failures && delay < MAX_RETRY_DELAY_MS; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, MAX_RETRY_DELAY_MS);
+    }
+
+    @VisibleForTesting
+    long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    private void onPageFinished(int index, boolean hasMore) {
+        if (index == mPages.size() - 1) {
+            mHasMore = hasMore;
+        }
+        boolean loading = false;
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            loading |= mPages.get(i).loading;
+        }
+        mCard.loading = loading;
+        mCard.loaded = true;
+        mCard.hasMore = mHasMore;
+        mCard.page = CardLoadSupport.getInitialPage() + mPages.size();
+    }
+
+    private void dropPages(Page loaded) {
+        MVHelper mvHelper = mCard.serviceManager != null ? mCard.serviceManager.getService(MVHelper.class) : null;
+        while (mResidentPages.size() > mMaxResidentPages) {
+            Page page = mResidentPages.getFirst() == loaded ? mResidentPages.remove(1) : mResidentPages.removeFirst();
+            if (page.cells != null) {
+                for (int i = 0, size = page.cells.size(); i < size; i++) {
+                    BaseCell cell = page.cells.get(i);
+                    if (mCard.mIsActivated) {
+                        cell.removed();
+                    }
+                    if (mvHelper != null) {
+                        mvHelper.release(cell);
+                    }
+                }
+            }
+            page.cells = null;
+        }
+    }
+
+    /**
+     * Update cells of card with resident pages and placeholders.
+     */
+    private void publish() {
+        List<BaseCell> cells = new ArrayList<>();
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            Page page = mPages.get(i);
+            if (page.cells != null) {
+                cells.addAll(page.cells);
+            } else {
+                if (page.placeholders == null || page.placeholders.size() != page.size) {
+                    // keep same placeholder instances, so that they are not rebound
+                    page.placeholders = new ArrayList<>(page.size);
+                    for (int j = 0; j < page.size; j++) {
+                        page.placeholders.add(new Card.PlaceholderCell(mPlaceholderHeight, mPlaceholderBgColor));
+                    }
+                }
+                cells.addAll(page.placeholders);
+            }
+        }
+        mCard.setCells(cells);
+        mCard.notifyDataChange();
+    }
+}
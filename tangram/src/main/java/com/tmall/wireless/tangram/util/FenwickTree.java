@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.util;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Binary indexed tree of non-negative int values, supports point update, prefix sum and searching position by prefix
+ * sum in O(log n). Values can be inserted or removed, which only rebuilds nodes after the index.
+ */
+public class FenwickTree {
+
+    private int mSize;
+
+    private int[] mValues;
+
+    private long[] mTree;
+
+    public FenwickTree() {
+        this(0);
+    }
+
+    public FenwickTree(int size) {
+        mSize = size;
+        mValues = new int[Math.max(size, 1)];
+        mTree = new long[Math.max(size, 1) + 1];
+    }
+
+    /**
+     * Rebuild the tree with values in O(n).
+     *
+     * @param values new values, negative ones are taken as 0
+     * @param size   count of values used
+     */
+    public void reset(@NonNull int[] values, int size) {
+        ensureCapacity(size);
+        mSize = size;
+        for (int i = 0; i < size; i++) {
+            mValues[i] = Math.max(values[i], 0);
+            mTree[i + 1] = mValues[i];
+        }
+        mTree[0] = 0;
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    /**
+     * Insert zeros before index, in O(size - index), appending is O(count) amortized.
+     *
+     * @param index index of the first inserted value, in [0, size]
+     * @param count count of values inserted
+     */
+    public void insert(int index, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(mSize + count);
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        Arrays.fill(mValues, index, index + count, 0);
+        mSize += count;
+        rebuildFrom(index);
+    }
+
+    /**
+     * Remove values, in O(size - index).
+     *
+     * @param index index of the first removed value
+     * @param count count of values removed
+     */
+    public void remove(int index, int count) {
+        count = Math.min(count, mSize - index);
+        if (count <= 0) {
+            return;
+        }
+        System.arraycopy(mValues, index + count, mValues, index, mSize - index - count);
+        mSize -= count;
+        rebuildFrom(index);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int get(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * @param index index of value
+     * @param value new value, negative one is taken as 0
+     */
+    public void set(int index, int value) {
+        value = Math.max(value, 0);
+        long delta = value - mValues[index];
+        if (delta == 0) {
+            return;
+        }
+        mValues[index] = value;
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * @param end index after the last value summed
+     * @return sum of values in [0, end)
+     */
+    public long sum(int end) {
+        long sum = 0;
+        for (int i = Math.min(end, mSize); i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return sum of all values
+     */
+    public long total() {
+        return sum(mSize);
+    }
+
+    private void ensureCapacity(int size) {
+        if (mValues.length < size) {
+            int capacity = Math.max(size, mValues.length * 2);
+            mValues = Arrays.copyOf(mValues, capacity);
+            mTree = Arrays.copyOf(mTree, capacity + 1);
+        }
+    }
+
+    /**
+     * Recalculate nodes after index, each node is its value plus nodes of its children, which are either before index
+     * and not affected or recalculated already.
+     */
+    private void rebuildFrom(int index) {
+        for (int i = index + 1; i <= mSize; i++) {
+            long sum = mValues[i - 1];
+            for (int step = 1, lowBit = i & -i; step < lowBit; step <<= 1) {
+                sum += mTree[i - step];
+            }
+            mTree[i] = sum;
+        }
+    }
+
+    /**
+     * @param target prefix sum to search
+     * @return the largest count of leading values whose sum is no more than target, in [0, size]
+     */
+    public int find(long target) {
+        if (target < 0) {
+            return 0;
+        }
+        int index = 0;
+        int step = Integer.highestOneBit(Math.max(mSize, 1));
+        for (; step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= target) {
+                index = next;
+                target -= mTree[next];
+            }
+        }
+        return index;
+    }
+}
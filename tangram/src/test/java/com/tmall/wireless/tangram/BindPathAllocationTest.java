@@ -0,0 +1,278 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram;
+
+import java.util.List;
+
+import android.view.View;
+import android.view.ViewGroup;
+import com.tmall.wireless.tangram.core.adapter.BinderViewHolder;
+import com.tmall.wireless.tangram.dataparser.concrete.BaseCellBinder;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.dataparser.concrete.Style;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.structure.CellRender;
+import com.tmall.wireless.tangram.structure.viewcreator.ViewHolderCreator;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the bind path against allocation regressions, every item bound while scrolling goes through these calls.
+ */
+public class BindPathAllocationTest {
+
+    private static final int ITERATIONS = 10000;
+
+    /**
+     * one weak reference for the new cell plus one map entry, with some slack for object layout differences
+     */
+    private static final long SWITCH_BUDGET = 128;
+
+    private Card mCard;
+
+    private BaseCell mFirst;
+
+    private BaseCell mSecond;
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationCounter.isSupported());
+        mCard = new Card() {
+        };
+        mCard.id = "card";
+        mFirst = createCell(0);
+        mSecond = createCell(1);
+    }
+
+    private BaseCell createCell(int pos) {
+        BaseCell cell = new BaseCell();
+        cell.parent = mCard;
+        cell.parentId = mCard.id;
+        cell.pos = pos;
+        return cell;
+    }
+
+    private BaseCell createRenderedCell() throws JSONException {
+        BaseCell cell = createCell(2);
+        cell.stringType = "stub";
+        cell.style = new Style();
+        // out of the Integer cache, so boxing would allocate
+        cell.extras.put("title", "title");
+        cell.extras.put("count", 1000);
+        cell.extras.put("price", 3.5d);
+        cell.extras.put("stamp", 1L << 40);
+        return cell;
+    }
+
+    private BinderViewHolder<BaseCell, StubView> createViewHolder(StubView view) {
+        MVHelper mvHelper = new MVHelper(new MVResolver());
+        return new BinderViewHolder<>(view,
+            new BaseCellBinder<ViewHolderCreator.ViewHolder, StubView>(StubView.class, mvHelper));
+    }
+
+    @Test
+    public void uniqueIdIsCached() {
+        final String id = mFirst.getUniqueId();
+        assertEquals("card_0", id);
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                mFirst.getUniqueId();
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertSame(id, mFirst.getUniqueId());
+
+        mFirst.pos = 5;
+        assertEquals("card_5", mFirst.getUniqueId());
+    }
+
+    @Test
+    public void cellsViewIsReused() {
+        final List<BaseCell> cells = mCard.getCells();
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                mCard.getCells();
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertSame(cells, mCard.getCells());
+    }
+
+    @Test
+    public void rebindSameCellDoesNotAllocate() {
+        final MVResolver resolver = new MVResolver();
+        final View view = new View(null);
+        final String id = mFirst.getUniqueId();
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                resolver.register(id, mFirst, view);
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertSame(view, resolver.getView(mFirst));
+        assertSame(mFirst, resolver.getCell(view));
+    }
+
+    @Test
+    public void switchingCellsStaysWithinBudget() {
+        final MVResolver resolver = new MVResolver();
+        final View view = new View(null);
+        final String firstId = mFirst.getUniqueId();
+        final String secondId = mSecond.getUniqueId();
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                resolver.register(firstId, mFirst, view);
+                resolver.unregister(mFirst);
+                resolver.register(secondId, mSecond, view);
+                resolver.unregister(mSecond);
+            }
+        }, ITERATIONS);
+        assertTrue("bind/unbind cycle allocated " + bytes + " bytes", bytes <= 2 * SWITCH_BUDGET);
+        assertNull(resolver.getView(mSecond));
+    }
+
+    @Test
+    public void mountThroughViewHolderDoesNotAllocate() throws JSONException {
+        final BaseCell cell = createRenderedCell();
+        final StubView view = new StubView();
+        final BinderViewHolder<BaseCell, StubView> holder = createViewHolder(view);
+        holder.bind(cell);
+        assertEquals("title", view.title);
+        assertEquals(1000, view.count);
+        assertEquals(3.5d, view.price, 0d);
+        assertEquals(1L << 40, view.stamp);
+
+        int mounts = view.mounts;
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                // content changed, view is mounted again
+                cell.invalidateContentVersion();
+                holder.bind(cell);
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertTrue(view.mounts - mounts >= ITERATIONS);
+    }
+
+    @Test
+    public void remountThroughViewHolderDoesNotAllocate() throws JSONException {
+        final BaseCell cell = createRenderedCell();
+        final StubView view = new StubView();
+        final BinderViewHolder<BaseCell, StubView> holder = createViewHolder(view);
+        holder.bind(cell);
+
+        int mounts = view.mounts;
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                holder.bind(cell);
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertEquals(mounts, view.mounts);
+    }
+
+    @Test
+    public void defaultSetterValuesAreNotBoxed() {
+        final BaseCell cell = createCell(3);
+        final StubView view = new StubView();
+        final BindingPlan plan = BindingPlan.compile(StubView.class);
+        long bytes = AllocationCounter.bytesPerIteration(new Runnable() {
+            @Override
+            public void run() {
+                plan.renderView(cell, view);
+            }
+        }, ITERATIONS);
+        assertEquals(0, bytes);
+        assertEquals("", view.title);
+        assertEquals(0d, view.price, 0d);
+    }
+
+    public static class StubView extends View {
+
+        String title;
+
+        int count;
+
+        double price;
+
+        long stamp;
+
+        int mounts;
+
+        private ViewGroup.LayoutParams mLayoutParams;
+
+        public StubView() {
+            super(null);
+        }
+
+        @Override
+        public ViewGroup.LayoutParams getLayoutParams() {
+            return mLayoutParams;
+        }
+
+        @Override
+        public void setLayoutParams(ViewGroup.LayoutParams params) {
+            mLayoutParams = params;
+        }
+
+        @CellRender
+        public void title(String title) {
+            this.title = title;
+        }
+
+        @CellRender(key = "count")
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        @CellRender
+        public void price(double price) {
+            this.price = price;
+        }
+
+        @CellRender
+        public void stamp(long stamp) {
+            this.stamp = stamp;
+        }
+
+        @CellRender
+        public void postBindView(BaseCell cell) {
+            mounts++;
+        }
+    }
+}
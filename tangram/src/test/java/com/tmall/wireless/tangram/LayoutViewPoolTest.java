@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram;
+
+import android.view.View;
+import android.widget.ImageView;
+import com.tmall.wireless.tangram.util.ImageUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Views released to {@link LayoutViewPool} should be found again by {@link LayoutViewPool#generateLayoutView}.
+ */
+public class LayoutViewPoolTest {
+
+    private LayoutViewPool mPool;
+
+    @Before
+    public void setUp() {
+        ImageUtils.sImageClass = null;
+        mPool = new LayoutViewPool() {
+            @Override
+            void resetReleasedView(View view) {
+                // animators are not available in local unit tests
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        ImageUtils.sImageClass = null;
+    }
+
+    @Test
+    public void releasedViewIsReused() {
+        View view = new View(null);
+        mPool.release(view);
+        assertSame(view, mPool.generateLayoutView(null));
+        assertNotSame(view, mPool.generateLayoutView(null));
+    }
+
+    @Test
+    public void releasedImageViewIsReused() {
+        ImageUtils.sImageClass = ImageView.class;
+        View view = mPool.generateLayoutView(null);
+        assertTrue(view instanceof ImageView);
+        mPool.release(view);
+        assertSame(view, mPool.generateLayoutView(null));
+    }
+
+    @Test
+    public void viewOfOtherKindIsNotReused() {
+        View view = new View(null);
+        ImageUtils.sImageClass = ImageView.class;
+        mPool.release(view);
+        assertNotSame(view, mPool.generateLayoutView(null));
+    }
+
+    @Test
+    public void idleViewsAreLimited() {
+        mPool.setMaxPerKind(1);
+        View first = new View(null);
+        View second = new View(null);
+        mPool.release(first);
+        mPool.release(second);
+        assertSame(first, mPool.generateLayoutView(null));
+        View created = mPool.generateLayoutView(null);
+        assertNotSame(first, created);
+        assertNotSame(second, created);
+    }
+}
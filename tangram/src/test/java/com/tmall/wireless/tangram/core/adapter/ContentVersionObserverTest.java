@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.tmall.wireless.tangram.core.protocol.ControlBinder;
+import com.tmall.wireless.tangram.core.protocol.ViewRemounter;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContentVersionObserverTest {
+
+    private final List<Item> mItems = new ArrayList<>();
+
+    private ItemAdapter mAdapter;
+
+    private CountingBinder mBinder;
+
+    private BinderViewHolder<Item, View> mHolder;
+
+    @Before
+    public void setUp() {
+        mItems.add(new Item());
+        mItems.add(new Item());
+        mAdapter = new ItemAdapter(mItems);
+        mAdapter.registerAdapterDataObserver(new ContentVersionObserver(mItems));
+        mBinder = new CountingBinder();
+        mHolder = new BinderViewHolder<>(new View(null), mBinder);
+        mHolder.bind(mItems.get(0));
+    }
+
+    @Test
+    public void refreshWithUnchangedItemsSkipsRemount() {
+        mAdapter.notifyDataSetChanged();
+        mHolder.bind(mItems.get(0));
+
+        assertEquals(1, mBinder.mounted);
+        assertEquals(1, mBinder.remounted);
+    }
+
+    @Test
+    public void itemChangedByPositionIsMountedAgain() {
+        mAdapter.notifyItemChanged(0);
+        mHolder.bind(mItems.get(0));
+
+        assertEquals(2, mBinder.mounted);
+        assertEquals(0, mBinder.remounted);
+    }
+
+    @Test
+    public void changeOfAnotherItemSkipsRemount() {
+        mAdapter.notifyItemRangeChanged(1, 1);
+        mHolder.bind(mItems.get(0));
+
+        assertEquals(1, mBinder.mounted);
+    }
+
+    @Test
+    public void partialUpdateKeepsVersion() {
+        int version = mItems.get(0).getContentVersion();
+        mAdapter.notifyItemChanged(0, new PartialUpdate(Collections.singleton("title")));
+
+        assertEquals(version, mItems.get(0).getContentVersion());
+    }
+
+    private static final class Item implements VersionedItem {
+
+        private int mVersion;
+
+        @Override
+        public int getContentVersion() {
+            return mVersion;
+        }
+
+        @Override
+        public void invalidateContentVersion() {
+            mVersion++;
+        }
+    }
+
+    private static final class CountingBinder implements ControlBinder<Item, View>, ViewRemounter<Item, View> {
+
+        int mounted;
+
+        int remounted;
+
+        @NonNull
+        @Override
+        public View createView(Context context, ViewGroup parent) {
+            return new View(context);
+        }
+
+        @Override
+        public void mountView(@NonNull Item data, @NonNull View view) {
+            mounted++;
+        }
+
+        @Override
+        public void unmountView(@NonNull Item data, @NonNull View view) {
+        }
+
+        @Override
+        public void remountView(@NonNull Item data, @NonNull View view) {
+            remounted++;
+        }
+
+        @Override
+        public boolean remountView(@NonNull Item data, @NonNull View view, @NonNull Set<String> changedKeys) {
+            return false;
+        }
+    }
+
+    private static final class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final List<Item> mItems;
+
+        ItemAdapter(List<Item> items) {
+            this.mItems = items;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItems.size();
+        }
+    }
+}
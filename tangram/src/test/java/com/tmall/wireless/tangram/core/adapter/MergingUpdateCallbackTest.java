@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.core.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergingUpdateCallbackTest {
+
+    private RecordingCallback mTarget;
+
+    private MergingUpdateCallback mCallback;
+
+    @Before
+    public void setUp() {
+        mTarget = new RecordingCallback();
+        mCallback = new MergingUpdateCallback(mTarget);
+    }
+
+    @Test
+    public void replacementIsMergedIntoChange() {
+        mCallback.onRemoved(3, 2);
+        mCallback.onInserted(3, 2);
+        mCallback.flush();
+
+        assertEquals(Arrays.asList("changed 3 2 null"), mTarget.events);
+    }
+
+    @Test
+    public void extraRemovalIsKept() {
+        mCallback.onRemoved(3, 4);
+        mCallback.onInserted(3, 1);
+        mCallback.flush();
+
+        assertEquals(Arrays.asList("changed 3 1 null", "removed 4 3"), mTarget.events);
+    }
+
+    @Test
+    public void extraInsertionIsKept() {
+        mCallback.onRemoved(3, 1);
+        mCallback.onInserted(3, 3);
+        mCallback.flush();
+
+        assertEquals(Arrays.asList("changed 3 1 null", "inserted 4 2"), mTarget.events);
+    }
+
+    @Test
+    public void removalAtAnotherPositionIsNotMerged() {
+        mCallback.onRemoved(5, 1);
+        mCallback.onInserted(2, 1);
+        mCallback.flush();
+
+        assertEquals(Arrays.asList("removed 5 1", "inserted 2 1"), mTarget.events);
+    }
+
+    @Test
+    public void pendingRemovalIsDispatchedBeforeOtherUpdates() {
+        mCallback.onRemoved(5, 1);
+        mCallback.onChanged(1, 2, "payload");
+        mCallback.onRemoved(0, 1);
+        mCallback.onMoved(2, 4);
+
+        assertEquals(Arrays.asList("removed 5 1", "changed 1 2 payload", "removed 0 1", "moved 2 4"),
+                mTarget.events);
+    }
+
+    @Test
+    public void flushWithoutPendingRemovalDoesNothing() {
+        mCallback.flush();
+        mCallback.onInserted(0, 1);
+        mCallback.flush();
+
+        assertEquals(Arrays.asList("inserted 0 1"), mTarget.events);
+    }
+
+    private static class RecordingCallback implements ListUpdateCallback {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("inserted " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("removed " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            events.add("changed " + position + " " + count + " " + payload);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.structure.card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.tmall.wireless.tangram.dataparser.concrete.Style;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.structure.card.GridCard.CellSpanSizeLookup;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ChunkBoundsTest {
+
+    private static int[] computeBounds(int[] colspans, int totalColumn, int chunkSize) throws JSONException {
+        List<BaseCell> cells = new ArrayList<>();
+        for (int colspan : colspans) {
+            BaseCell cell = new BaseCell();
+            cell.style = new Style();
+            cell.style.extras = new JSONObject().put(CellSpanSizeLookup.KEY_COLSPAN, colspan);
+            cells.add(cell);
+        }
+        CellSpanSizeLookup lookup = new CellSpanSizeLookup(cells, totalColumn, new GridCard.SpanCache());
+        return GridCard.computeRowBounds(lookup, cells.size(), totalColumn, chunkSize);
+    }
+
+    @Test
+    public void splitAtRowsOfSingleSpans() throws JSONException {
+        int[] colspans = new int[10];
+        Arrays.fill(colspans, 1);
+
+        assertArrayEquals(new int[]{0, 4, 8, 10}, computeBounds(colspans, 2, 3));
+    }
+
+    @Test
+    public void chunksNeverSplitRows() throws JSONException {
+        // rows: [0, 1], [2], [3, 4, 5], [6], [7]
+        int[] colspans = {2, 1, 3, 1, 1, 1, 3, 3};
+
+        assertArrayEquals(new int[]{0, 2, 6, 8}, computeBounds(colspans, 3, 2));
+    }
+
+    @Test
+    public void spansWiderThanColumnsTakeOneRow() throws JSONException {
+        int[] colspans = {5, 5, 5, 5};
+
+        assertArrayEquals(new int[]{0, 2, 4}, computeBounds(colspans, 2, 2));
+    }
+
+    @Test
+    public void smallCardIsOneChunk() throws JSONException {
+        int[] colspans = {1, 1, 1};
+
+        assertArrayEquals(new int[]{0, 3}, computeBounds(colspans, 2, 5));
+    }
+}
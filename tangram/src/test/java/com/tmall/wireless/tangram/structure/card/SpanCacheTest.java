@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.structure.card;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.tmall.wireless.tangram.dataparser.concrete.Style;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import com.tmall.wireless.tangram.structure.card.GridCard.CellSpanSizeLookup;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Span indexes from {@link GridCard.SpanCache} should be the same as the walk of vlayout's default implementation.
+ */
+public class SpanCacheTest {
+
+    private static final int START_POSITION = 7;
+
+    private final Random mRandom = new Random(7);
+
+    private List<BaseCell> mCells;
+
+    private GridCard.SpanCache mSpanCache;
+
+    private CellSpanSizeLookup mCachedLookup;
+
+    private CellSpanSizeLookup mPlainLookup;
+
+    @Before
+    public void setUp() throws JSONException {
+        mCells = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            mCells.add(createCell(1 + mRandom.nextInt(4)));
+        }
+        mSpanCache = new GridCard.SpanCache();
+        mCachedLookup = new CellSpanSizeLookup(mCells, 4, mSpanCache);
+        mCachedLookup.setStartPosition(START_POSITION);
+        mPlainLookup = new CellSpanSizeLookup(mCells, 4);
+        mPlainLookup.setStartPosition(START_POSITION);
+    }
+
+    private static BaseCell createCell(int colspan) throws JSONException {
+        BaseCell cell = new BaseCell();
+        cell.style = new Style();
+        cell.style.extras = new JSONObject().put(CellSpanSizeLookup.KEY_COLSPAN, colspan);
+        return cell;
+    }
+
+    @Test
+    public void sameAsDefaultInOrder() {
+        assertSameSpans(4);
+    }
+
+    @Test
+    public void sameAsDefaultInRandomOrder() {
+        for (int i = 0; i < 500; i++) {
+            int position = START_POSITION + mRandom.nextInt(mCells.size());
+            assertEquals(mPlainLookup.getSpanIndex(position, 4), mCachedLookup.getSpanIndex(position, 4));
+        }
+    }
+
+    @Test
+    public void sameAsDefaultWithOtherSpanCount() {
+        assertSameSpans(4);
+        assertSameSpans(3);
+        assertSameSpans(6);
+    }
+
+    @Test
+    public void sameAsDefaultAfterCellsChanged() throws JSONException {
+        assertSameSpans(4);
+
+        mCells.set(50, createCell(4));
+        mCells.add(120, createCell(3));
+        mCells.remove(10);
+        mSpanCache.invalidate(10);
+        assertSameSpans(4);
+
+        mCells.subList(150, mCells.size()).clear();
+        assertSameSpans(4);
+    }
+
+    private void assertSameSpans(int spanCount) {
+        for (int position = START_POSITION, end = START_POSITION + mCells.size(); position < end; position++) {
+            assertEquals("span size at " + position, mPlainLookup.getSpanSize(position),
+                    mCachedLookup.getSpanSize(position));
+            assertEquals("span index at " + position, mPlainLookup.getSpanIndex(position, spanCount),
+                    mCachedLookup.getSpanIndex(position, spanCount));
+        }
+    }
+}
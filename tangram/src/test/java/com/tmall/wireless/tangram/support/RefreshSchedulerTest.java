@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshSchedulerTest {
+
+    private RecordingListener mListener;
+
+    private RefreshScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mListener = new RecordingListener();
+        mScheduler = new RefreshScheduler(mListener);
+    }
+
+    @Test
+    public void requestsInOneFrameAreCoalesced() {
+        mScheduler.schedule(false);
+        mScheduler.schedule(true);
+        mScheduler.schedule(false);
+        assertTrue(mScheduler.isScheduled());
+
+        mScheduler.flush();
+
+        assertFalse(mScheduler.isScheduled());
+        assertEquals(1, mListener.refreshCount);
+        assertTrue(mListener.lastLayoutUpdated);
+        assertEquals(3, mScheduler.getRequestedCount());
+        assertEquals(1, mScheduler.getExecutedCount());
+        assertEquals(2, mScheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void dirtyCardsAreMergedInRequestOrder() {
+        Card first = new Card() {
+        };
+        Card second = new Card() {
+        };
+        mScheduler.schedule(second);
+        mScheduler.schedule(first);
+        mScheduler.schedule(second);
+
+        mScheduler.flush();
+
+        assertEquals(0, mListener.refreshCount);
+        assertEquals(1, mListener.cards.size());
+        List<Card> cards = mListener.cards.get(0);
+        assertEquals(2, cards.size());
+        assertTrue(cards.get(0) == second);
+        assertTrue(cards.get(1) == first);
+        assertEquals(1, mScheduler.getExecutedCount());
+        assertEquals(2, mScheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void fullRefreshWithLayoutCoversDirtyCards() {
+        mScheduler.schedule(new Card() {
+        });
+        mScheduler.schedule(true);
+
+        mScheduler.flush();
+
+        assertEquals(1, mListener.refreshCount);
+        assertTrue(mListener.cards.isEmpty());
+        assertEquals(1, mScheduler.getExecutedCount());
+        assertEquals(1, mScheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void rejectedRefreshIsRetried() {
+        mListener.accept = false;
+        mScheduler.schedule(true);
+        mScheduler.schedule(true);
+
+        mScheduler.flush();
+
+        assertTrue(mScheduler.isScheduled());
+        assertEquals(0, mScheduler.getExecutedCount());
+
+        mListener.accept = true;
+        mScheduler.schedule(false);
+        mScheduler.flush();
+
+        assertFalse(mScheduler.isScheduled());
+        assertEquals(2, mListener.refreshCount);
+        assertEquals(3, mScheduler.getRequestedCount());
+        assertEquals(1, mScheduler.getExecutedCount());
+        assertEquals(2, mScheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void cancelDropsPendingRequests() {
+        mScheduler.schedule(true);
+        mScheduler.cancel();
+
+        mScheduler.flush();
+
+        assertFalse(mScheduler.isScheduled());
+        assertEquals(0, mListener.refreshCount);
+        assertEquals(1, mScheduler.getRequestedCount());
+        assertEquals(0, mScheduler.getExecutedCount());
+
+        mScheduler.resetCounts();
+        assertEquals(0, mScheduler.getRequestedCount());
+    }
+
+    private static class RecordingListener implements RefreshScheduler.OnRefreshListener {
+
+        boolean accept = true;
+
+        int refreshCount;
+
+        boolean lastLayoutUpdated;
+
+        final List<List<Card>> cards = new ArrayList<>();
+
+        @Override
+        public boolean onRefresh(boolean layoutUpdated) {
+            refreshCount++;
+            lastLayoutUpdated = layoutUpdated;
+            return accept;
+        }
+
+        @Override
+        public boolean onRefreshCards(@NonNull List<Card> cards) {
+            this.cards.add(new ArrayList<>(cards));
+            return accept;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.support.async;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.tmall.wireless.tangram.dataparser.concrete.Card;
+import com.tmall.wireless.tangram.structure.BaseCell;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PagedCardDataSourceTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private RecordingCard mCard;
+
+    private RecordingLoader mLoader;
+
+    private long mNow;
+
+    private PagedCardDataSource mDataSource;
+
+    @Before
+    public void setUp() {
+        mCard = new RecordingCard();
+        mLoader = new RecordingLoader();
+        mNow = 1000;
+        mDataSource = new PagedCardDataSource(mCard, PAGE_SIZE, mLoader) {
+            @Override
+            long uptimeMillis() {
+                return mNow;
+            }
+        };
+        mDataSource.setPrefetchDistance(0);
+    }
+
+    @Test
+    public void placeholdersArePublishedWithTotalCount() {
+        mDataSource.setTotalCount(35);
+
+        assertEquals(35, mCard.cells.size());
+        for (BaseCell cell : mCard.cells) {
+            assertTrue(cell instanceof Card.PlaceholderCell);
+        }
+        assertTrue(mLoader.pages.isEmpty());
+    }
+
+    @Test
+    public void visibleCellsAreMappedToPages() {
+        mDataSource.setTotalCount(35);
+        mDataSource.onVisibleRangeChanged(12, 14);
+
+        assertEquals(1, mLoader.pages.size());
+        assertEquals(CardLoadSupport.getInitialPage() + 1, (int) mLoader.pages.get(0));
+
+        mDataSource.onVisibleRangeChanged(18, 31);
+
+        assertEquals(3, mLoader.pages.size());
+        assertEquals(CardLoadSupport.getInitialPage() + 2, (int) mLoader.pages.get(1));
+        assertEquals(CardLoadSupport.getInitialPage() + 3, (int) mLoader.pages.get(2));
+    }
+
+    @Test
+    public void loadedPageReplacesItsPlaceholders() {
+        mDataSource.setTotalCount(25);
+        List<BaseCell> before = mCard.cells;
+        mDataSource.onVisibleRangeChanged(10, 12);
+
+        List<BaseCell> cells = createCells(PAGE_SIZE);
+        mLoader.callbacks.get(0).finish(cells, true);
+
+        assertEquals(25, mCard.cells.size());
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            // placeholders of other pages are kept, so that they are not rebound
+            assertSame(before.get(i), mCard.cells.get(i));
+            assertSame(cells.get(i), mCard.cells.get(PAGE_SIZE + i));
+        }
+        assertSame(before.get(2 * PAGE_SIZE), mCard.cells.get(2 * PAGE_SIZE));
+
+        mDataSource.onVisibleRangeChanged(10, 12);
+        assertEquals(1, mLoader.pages.size());
+    }
+
+    @Test
+    public void failedPageWaitsForBackoff() {
+        mDataSource.setTotalCount(20);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        mLoader.callbacks.get(0).fail(true);
+
+        mDataSource.onVisibleRangeChanged(0, 5);
+        mDataSource.onVisibleRangeChanged(1, 6);
+        assertEquals(1, mLoader.pages.size());
+
+        mNow += PagedCardDataSource.getRetryDelay(1);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        assertEquals(2, mLoader.pages.size());
+
+        mLoader.callbacks.get(1).fail(true);
+        mNow += PagedCardDataSource.getRetryDelay(1);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        assertEquals(2, mLoader.pages.size());
+
+        mNow += PagedCardDataSource.getRetryDelay(2);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        assertEquals(3, mLoader.pages.size());
+    }
+
+    @Test
+    public void retryDelayIsBounded() {
+        assertTrue(PagedCardDataSource.getRetryDelay(2) > PagedCardDataSource.getRetryDelay(1));
+        assertEquals(PagedCardDataSource.getRetryDelay(100), PagedCardDataSource.getRetryDelay(1000));
+    }
+
+    @Test
+    public void pageFailedWithoutRetryIsOnlyLoadedByCaller() {
+        mDataSource.setTotalCount(20);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        mLoader.callbacks.get(0).fail(false);
+
+        mNow += PagedCardDataSource.getRetryDelay(100);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        assertEquals(1, mLoader.pages.size());
+
+        mDataSource.retry();
+        assertEquals(2, mLoader.pages.size());
+        assertEquals(CardLoadSupport.getInitialPage(), (int) mLoader.pages.get(1));
+    }
+
+    @Test
+    public void emptyPageIsNotRequestedAgain() {
+        mDataSource.setTotalCount(20);
+        mDataSource.onVisibleRangeChanged(0, 5);
+        mLoader.callbacks.get(0).finish(true);
+
+        assertEquals(10, mCard.cells.size());
+        mDataSource.onVisibleRangeChanged(0, 5);
+        assertEquals(2, mLoader.pages.size());
+        assertEquals(CardLoadSupport.getInitialPage() + 1, (int) mLoader.pages.get(1));
+    }
+
+    @Test
+    public void droppedPageIsPresentedByPlaceholders() {
+        mDataSource.setTotalCount(20);
+        mDataSource.setMaxResidentPages(1);
+        mDataSource.onVisibleRangeChanged(0, 15);
+        mLoader.callbacks.get(0).finish(createCells(PAGE_SIZE), true);
+        BaseCell first = mCard.cells.get(0);
+        mLoader.callbacks.get(1).finish(createCells(PAGE_SIZE), false);
+
+        assertEquals(20, mCard.cells.size());
+        assertTrue(mCard.cells.get(0) instanceof Card.PlaceholderCell);
+        assertNotSame(first, mCard.cells.get(0));
+        assertFalse(mCard.cells.get(PAGE_SIZE) instanceof Card.PlaceholderCell);
+    }
+
+    private static List<BaseCell> createCells(int count) {
+        List<BaseCell> cells = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cells.add(new BaseCell());
+        }
+        return cells;
+    }
+
+    private static final class RecordingCard extends Card {
+
+        List<BaseCell> cells = new ArrayList<>();
+
+        @Override
+        public void setCells(@Nullable List<BaseCell> cells) {
+            this.cells = cells != null ? new ArrayList<>(cells) : new ArrayList<BaseCell>();
+        }
+    }
+
+    private static final class RecordingLoader implements AsyncPageLoader {
+
+        final List<Integer> pages = new ArrayList<>();
+
+        final List<LoadedCallback> callbacks = new ArrayList<>();
+
+        @Override
+        public void loadData(int page, @NonNull Card card, @NonNull LoadedCallback callback) {
+            pages.add(page);
+            callbacks.add(callback);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Alibaba Group
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tmall.wireless.tangram.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FenwickTreeTest {
+
+    @Test
+    public void sumOfPrefixes() {
+        FenwickTree tree = new FenwickTree();
+        tree.reset(new int[]{3, 0, 5, -2, 7}, 5);
+
+        assertEquals(5, tree.size());
+        assertEquals(0, tree.sum(0));
+        assertEquals(3, tree.sum(1));
+        assertEquals(8, tree.sum(3));
+        // negative value is taken as 0
+        assertEquals(0, tree.get(3));
+        assertEquals(8, tree.sum(4));
+        assertEquals(15, tree.total());
+        assertEquals(15, tree.sum(100));
+    }
+
+    @Test
+    public void findByPrefixSum() {
+        FenwickTree tree = new FenwickTree();
+        tree.reset(new int[]{10, 10, 0, 10}, 4);
+
+        assertEquals(0, tree.find(-1));
+        assertEquals(0, tree.find(9));
+        assertEquals(1, tree.find(10));
+        assertEquals(1, tree.find(19));
+        // zero value is counted as soon as its prefix fits
+        assertEquals(3, tree.find(20));
+        assertEquals(4, tree.find(30));
+        assertEquals(4, tree.find(1000));
+    }
+
+    @Test
+    public void resetWithSmallerSize() {
+        FenwickTree tree = new FenwickTree();
+        tree.reset(new int[]{1, 2, 3, 4, 5, 6}, 6);
+        tree.reset(new int[]{4, 4}, 2);
+
+        assertEquals(2, tree.size());
+        assertEquals(8, tree.total());
+        assertEquals(1, tree.find(7));
+    }
+
+    @Test
+    public void setUpdatesSums() {
+        FenwickTree tree = new FenwickTree(4);
+        tree.set(2, 6);
+        tree.set(0, 1);
+        tree.set(2, 2);
+        tree.set(3, -5);
+
+        assertEquals(1, tree.sum(2));
+        assertEquals(3, tree.total());
+        assertEquals(0, tree.get(3));
+    }
+
+    @Test
+    public void insertAndRemoveMatchPlainList() {
+        Random random = new Random(42);
+        FenwickTree tree = new FenwickTree();
+        List<Integer> values = new ArrayList<>();
+        for (int round = 0; round < 500; round++) {
+            int op = random.nextInt(3);
+            if (op == 0 || values.isEmpty()) {
+                int index = random.nextInt(values.size() + 1);
+                int count = 1 + random.nextInt(5);
+                tree.insert(index, count);
+                for (int i = 0; i < count; i++) {
+                    values.add(index, 0);
+                }
+            } else if (op == 1) {
+                int index = random.nextInt(values.size());
+                int count = 1 + random.nextInt(Math.min(3, values.size() - index));
+                tree.remove(index, count);
+                for (int i = 0; i < count; i++) {
+                    values.remove(index);
+                }
+            } else {
+                int index = random.nextInt(values.size());
+                int value = random.nextInt(100);
+                tree.set(index, value);
+                values.set(index, value);
+            }
+            assertMatches(values, tree);
+        }
+    }
+
+    private static void assertMatches(List<Integer> values, FenwickTree tree) {
+        assertEquals(values.size(), tree.size());
+        long sum = 0;
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i).intValue(), tree.get(i));
+            assertEquals(sum, tree.sum(i));
+            sum += values.get(i);
+        }
+        assertEquals(sum, tree.total());
+    }
+}